@@ -0,0 +1,168 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread safe cache bounded by size, evicting the least recently used entries first,
+ * and optionally by time, expiring entries a set amount of time after they were computed.
+ * Values are computed outside the lock, so the same value may be computed more than once when requested concurrently.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class LruCache<K, V> {
+
+    private final int maximumSize;
+    private final long expireAfterWriteNanos;
+    private final Map<K, CachedValue<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache that holds at most the given amount of entries.
+     *
+     * @param maximumSize the maximum amount of entries
+     * @throws IllegalArgumentException if the maximumSize is less than 1
+     */
+    public LruCache(int maximumSize) {
+        this(maximumSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a cache that holds at most the given amount of entries, for at most the given duration.
+     *
+     * @param maximumSize the maximum amount of entries
+     * @param expireAfterWrite how long entries are kept after they're computed, {@code 0} to keep them until they are evicted for size
+     * @param unit the unit of expireAfterWrite
+     * @throws IllegalArgumentException if the maximumSize is less than 1 or expireAfterWrite is negative
+     */
+    public LruCache(int maximumSize, long expireAfterWrite, @NotNull TimeUnit unit) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1");
+        }
+        if (expireAfterWrite < 0) {
+            throw new IllegalArgumentException("expireAfterWrite cannot be negative");
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+        this.entries = new LinkedHashMap<K, CachedValue<V>>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CachedValue<V>> eldest) {
+                if (size() > LruCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets the value for the given key, computing and storing it if it is not cached or has expired.
+     *
+     * @param key the key
+     * @param loader the function to compute the value with if it is not cached, may not return {@code null}
+     * @return the cached or computed value
+     */
+    @NotNull
+    public V get(@NotNull K key, @NotNull Function<? super K, ? extends V> loader) {
+        CachedValue<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && isExpired(entry)) {
+                entries.remove(key);
+                evictions.increment();
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        V value = loader.apply(key);
+        entry = new CachedValue<>(value, expireAfterWriteNanos != 0 ? System.nanoTime() : 0);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        return value;
+    }
+
+    private boolean isExpired(CachedValue<V> entry) {
+        return expireAfterWriteNanos != 0 && System.nanoTime() - entry.writeTime >= expireAfterWriteNanos;
+    }
+
+    /**
+     * The maximum amount of entries in this cache.
+     * @return the maximum size
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * The current amount of entries in this cache, including expired entries that have not been removed yet.
+     * @return the size
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Removes all entries from this cache, without resetting the statistics.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the statistics of this cache.
+     * @return the statistics
+     */
+    @NotNull
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private static class CachedValue<V> {
+
+        private final V value;
+        private final long writeTime;
+
+        public CachedValue(V value, long writeTime) {
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+}
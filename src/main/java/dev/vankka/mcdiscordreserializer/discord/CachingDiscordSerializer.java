@@ -0,0 +1,244 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.discord;
+
+import dev.vankka.mcdiscordreserializer.cache.CacheStats;
+import dev.vankka.mcdiscordreserializer.cache.LruCache;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DiscordSerializer} that caches the output of another serializer.
+ * {@link Component}s are immutable, so equal Components serialize to the same markdown with the same options,
+ * as long as the {@link DiscordSerializerOptions#getFlattener() flattener} always gives the same output for them.<br/>
+ * The fingerprint a Component is looked up by is computed once per Component instance and remembered until the instance
+ * is garbage collected, so serializing the same instance again doesn't walk it. An equal but different instance
+ * is walked once and compared to the cached Component with {@link Component#equals(Object)}.<br/>
+ * Options are compared by their values, with the flattener compared by identity,
+ * so options from {@link DiscordSerializerOptions#defaults()} share cached outputs.
+ *
+ * @see LruCache
+ */
+@SuppressWarnings("unused") // API
+public class CachingDiscordSerializer extends DiscordSerializer {
+
+    private final DiscordSerializer serializer;
+    private final LruCache<CacheKey, String> cache;
+    private final Map<ComponentReference, Long> fingerprints = new HashMap<>();
+    private final ReferenceQueue<Component> fingerprintQueue = new ReferenceQueue<>();
+
+    /**
+     * Creates a caching serializer for a new {@link DiscordSerializer} with the default options.
+     *
+     * @param maximumSize the maximum amount of cached outputs
+     */
+    public CachingDiscordSerializer(int maximumSize) {
+        this(new DiscordSerializer(), maximumSize);
+    }
+
+    /**
+     * Creates a caching serializer for the given serializer, the default options of the given serializer are used.
+     *
+     * @param serializer the serializer to cache the output of
+     * @param maximumSize the maximum amount of cached outputs
+     * @throws IllegalArgumentException if the maximumSize is less than 1
+     */
+    public CachingDiscordSerializer(@NotNull DiscordSerializer serializer, int maximumSize) {
+        super(serializer.getDefaultOptions());
+        this.serializer = serializer;
+        this.cache = new LruCache<>(maximumSize);
+    }
+
+    @Override
+    public @NotNull DiscordSerializerOptions getDefaultOptions() {
+        return serializer.getDefaultOptions();
+    }
+
+    @Override
+    public void setDefaultOptions(@NotNull DiscordSerializerOptions defaultOptions) {
+        serializer.setDefaultOptions(defaultOptions);
+    }
+
+    @Override
+    public @NotNull String serialize(@NotNull Component component, @NotNull DiscordSerializerOptions serializerOptions) {
+        CacheKey cacheKey = new CacheKey(component, serializerOptions, fingerprint(component));
+        return cache.get(cacheKey, key -> serializer.serialize(component, serializerOptions));
+    }
+
+    @Override
+    public void serialize(
+            @NotNull Component component,
+            @NotNull DiscordSerializerOptions serializerOptions,
+            @NotNull Appendable appendable
+    ) throws IOException {
+        appendable.append(serialize(component, serializerOptions));
+    }
+
+    @Override
+    public @NotNull List<String> serializeChunks(
+            @NotNull Component component,
+            @NotNull DiscordSerializerOptions serializerOptions,
+            int maxLength
+    ) {
+        return serializer.serializeChunks(component, serializerOptions, maxLength);
+    }
+
+    /**
+     * Gets a snapshot of the hit, miss and eviction counts of this serializer's cache.
+     * @return the cache statistics
+     */
+    @NotNull
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Removes all cached outputs, for example after changing something the flattener depends on.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private long fingerprint(Component component) {
+        synchronized (fingerprints) {
+            expungeFingerprints();
+            Long fingerprint = fingerprints.get(new ComponentReference(component, null));
+            if (fingerprint != null) {
+                return fingerprint;
+            }
+        }
+
+        long fingerprint = computeFingerprint(component);
+        synchronized (fingerprints) {
+            fingerprints.put(new ComponentReference(component, fingerprintQueue), fingerprint);
+        }
+        return fingerprint;
+    }
+
+    private void expungeFingerprints() {
+        Reference<? extends Component> reference;
+        while ((reference = fingerprintQueue.poll()) != null) {
+            fingerprints.remove(reference);
+        }
+    }
+
+    /**
+     * A structural fingerprint of a {@link Component}, which only looks at the content and style of each text component
+     * instead of the deep {@link Component#hashCode()}. Equal Components always have the same fingerprint.
+     */
+    private static long computeFingerprint(Component component) {
+        long fingerprint = component.style().hashCode();
+        if (component instanceof TextComponent) {
+            fingerprint = mix(fingerprint, ((TextComponent) component).content().hashCode());
+            for (Component child : component.children()) {
+                fingerprint = mix(fingerprint, computeFingerprint(child));
+            }
+        } else {
+            fingerprint = mix(fingerprint, component.hashCode());
+        }
+        return fingerprint;
+    }
+
+    private static long mix(long fingerprint, long value) {
+        long mixed = (fingerprint ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 32);
+    }
+
+    /**
+     * If the given options serialize the same way, the flattener is compared by identity.
+     */
+    private static boolean sameOptions(DiscordSerializerOptions first, DiscordSerializerOptions second) {
+        return first == second || (first.isMaskedLinks() == second.isMaskedLinks()
+                && first.isEscapeMarkdown() == second.isEscapeMarkdown()
+                && first.isCompactFormatting() == second.isCompactFormatting()
+                && first.getFlattener() == second.getFlattener());
+    }
+
+    private static int optionsHashCode(DiscordSerializerOptions options) {
+        int result = System.identityHashCode(options.getFlattener());
+        result = 31 * result + Boolean.hashCode(options.isMaskedLinks());
+        result = 31 * result + Boolean.hashCode(options.isEscapeMarkdown());
+        result = 31 * result + Boolean.hashCode(options.isCompactFormatting());
+        return result;
+    }
+
+    /**
+     * A weak reference to a {@link Component} that is equal to references of the same instance,
+     * so it can be used as a key of an identity map that doesn't keep the Components alive.
+     */
+    private static class ComponentReference extends WeakReference<Component> {
+
+        private final int hashCode;
+
+        public ComponentReference(Component component, ReferenceQueue<? super Component> queue) {
+            super(component, queue);
+            this.hashCode = System.identityHashCode(component);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ComponentReference)) return false;
+            Component component = get();
+            return component != null && component == ((ComponentReference) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class CacheKey {
+
+        private final Component component;
+        private final DiscordSerializerOptions serializerOptions;
+        private final long fingerprint;
+
+        public CacheKey(Component component, DiscordSerializerOptions serializerOptions, long fingerprint) {
+            this.component = component;
+            this.serializerOptions = serializerOptions;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CacheKey cacheKey = (CacheKey) o;
+            return fingerprint == cacheKey.fingerprint
+                    && sameOptions(serializerOptions, cacheKey.serializerOptions)
+                    && (component == cacheKey.component || component.equals(cacheKey.component));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * optionsHashCode(serializerOptions) + Long.hashCode(fingerprint);
+        }
+    }
+}
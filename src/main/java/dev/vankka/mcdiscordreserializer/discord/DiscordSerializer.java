@@ -19,6 +19,7 @@
 package dev.vankka.mcdiscordreserializer.discord;
 
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.flattener.ComponentFlattener;
@@ -28,9 +29,11 @@ import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.serializer.ComponentEncoder;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
-import java.util.regex.Pattern;
 
 /**
  * DiscordSerializer, for serializing from Minecraft {@link Component}s to Discord messages.
@@ -42,7 +45,58 @@ import java.util.regex.Pattern;
 @SuppressWarnings("unused") // API
 public class DiscordSerializer implements ComponentEncoder<Component, String> {
 
-    private static final Pattern LINK_PATTERN = Pattern.compile("(https?://.*\\.[^ ]*)$");
+    /**
+     * Markdown characters that are escaped with a backslash when escaping markdown, indexed by character.
+     */
+    private static final boolean[] ESCAPED_CHARACTERS = new boolean[128];
+
+    static {
+        for (char character : new char[] {'*', '~', '_', '`', '|'}) {
+            ESCAPED_CHARACTERS[character] = true;
+        }
+    }
+
+    private static final int BOLD = 1;
+    private static final int STRIKETHROUGH = 1 << 1;
+    private static final int ITALIC = 1 << 2;
+    private static final int UNDERLINE = 1 << 3;
+
+    /**
+     * The decorations for formatting, indexed by the bit of the formatting.
+     */
+    private static final TextDecoration[] DECORATIONS = {
+            TextDecoration.BOLD,
+            TextDecoration.STRIKETHROUGH,
+            TextDecoration.ITALIC,
+            TextDecoration.UNDERLINED
+    };
+
+    /**
+     * The markdown markers for formatting, indexed by the bit of the formatting.
+     * Formatting is always opened in this order and closed in reverse, lower bits being the outermost.
+     */
+    private static final String[] MARKERS = {"**", "~~", "_", "__"};
+
+    /**
+     * The markers for opening and closing every combination of formatting, indexed by the formatting.
+     */
+    private static final String[] OPENING_MARKERS = new String[1 << MARKERS.length];
+    private static final String[] CLOSING_MARKERS = new String[1 << MARKERS.length];
+
+    static {
+        for (int formatting = 0; formatting < OPENING_MARKERS.length; formatting++) {
+            StringBuilder opening = new StringBuilder();
+            StringBuilder closing = new StringBuilder();
+            for (int i = 0; i < MARKERS.length; i++) {
+                if ((formatting & (1 << i)) != 0) {
+                    opening.append(MARKERS[i]);
+                    closing.insert(0, MARKERS[i]);
+                }
+            }
+            OPENING_MARKERS[formatting] = opening.toString();
+            CLOSING_MARKERS[formatting] = closing.toString();
+        }
+    }
 
     /**
      * Default instance of the DiscordSerializer, incase that's all you need.
@@ -61,6 +115,11 @@ public class DiscordSerializer implements ComponentEncoder<Component, String> {
     @NotNull
     private DiscordSerializerOptions defaultOptions;
 
+    /**
+     * Flattened hover texts for masked links, hovers like "Click to open" tend to repeat a lot.
+     */
+    private final HoverCache hoverCache = new HoverCache();
+
     /**
      * Constructor for creating a serializer, which {@link DiscordSerializerOptions#defaults()} as defaults.
      */
@@ -108,170 +167,769 @@ public class DiscordSerializer implements ComponentEncoder<Component, String> {
         return serialize(component, options);
     }
 
+    /**
+     * Serializes a {@link Component} to Discord formatting (markdown).
+     *
+     * @param component         The text component from a Minecraft chat message
+     * @param serializerOptions The options to use for this serialization
+     * @return Discord markdown formatted String
+     * @see #serialize(Component, DiscordSerializerOptions, Appendable)
+     */
     @NotNull
     public String serialize(@NotNull final Component component, @NotNull final DiscordSerializerOptions serializerOptions) {
-        ComponentFlattener flattener = serializerOptions.getFlattener();
+        StringBuilder stringBuilder = new StringBuilder();
+        try {
+            serialize(component, serializerOptions, stringBuilder);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return stringBuilder.toString();
+    }
 
-        FlattenListener listener = new FlattenListener(serializerOptions);
-        flattener.flatten(component, listener);
+    /**
+     * Serializes a {@link Component} to Discord formatting (markdown), appending the output directly to the
+     * provided {@link Appendable} instead of building a String.
+     *
+     * @param component         The text component from a Minecraft chat message
+     * @param serializerOptions The options to use for this serialization
+     * @param appendable        The appendable to append the Discord markdown to, for example a {@link StringBuilder} or a {@link java.io.Writer}
+     * @throws IOException if appending to the appendable fails
+     */
+    public void serialize(
+            @NotNull final Component component,
+            @NotNull final DiscordSerializerOptions serializerOptions,
+            @NotNull final Appendable appendable
+    ) throws IOException {
+        if (isPlain(component, serializerOptions)) {
+            // a single text without formatting or anything to escape is written as it is
+            appendable.append(((TextComponent) component).content());
+            return;
+        }
+        List<Text> texts = flatten(component, serializerOptions);
 
-        StringBuilder stringBuilder = new StringBuilder();
-        List<Text> texts = listener.getTexts();
+        MarkdownWriter writer = new MarkdownWriter(appendable, serializerOptions);
         for (Text text : texts) {
-            String content = text.getContent().toString();
-            if (content.isEmpty()) {
-                // won't work
-                continue;
+            // Markdown doesn't apply inside links
+            boolean escape = serializerOptions.isEscapeMarkdown() && !writer.isInLink();
+            writer.appendText(text, text.getStart(), text.getEnd(), escape);
+        }
+        writer.finish();
+    }
+
+    /**
+     * Serializes a {@link Component} to Discord formatting (markdown) with this serializer's {@link DiscordSerializer#getDefaultOptions() default options},
+     * split into chunks that are at most the given length.
+     *
+     * @param component The text component from a Minecraft chat message
+     * @param maxLength The maximum length of a single chunk, for example the maximum length of a Discord message
+     * @return Discord markdown formatted Strings, in order
+     * @see #serializeChunks(Component, DiscordSerializerOptions, int)
+     */
+    @NotNull
+    public List<String> serializeChunks(@NotNull final Component component, final int maxLength) {
+        DiscordSerializerOptions options = getDefaultOptions();
+        return serializeChunks(component, options, maxLength);
+    }
+
+    /**
+     * Serializes a {@link Component} to Discord formatting (markdown), split into chunks that are at most the given length,
+     * for sending the output as multiple Discord messages.<br/>
+     * Formatting is closed at the end of a chunk and reopened in the next one, masked links and escaped characters are never split.
+     * Text that has to be split is split after whitespace when possible.
+     *
+     * @param component         The text component from a Minecraft chat message
+     * @param serializerOptions The options to use for this serialization
+     * @param maxLength         The maximum length of a single chunk, for example the maximum length of a Discord message
+     * @return Discord markdown formatted Strings, in order
+     * @throws IllegalArgumentException if the maxLength is too small to fit the formatting (and link) of a single character
+     */
+    @NotNull
+    public List<String> serializeChunks(
+            @NotNull final Component component,
+            @NotNull final DiscordSerializerOptions serializerOptions,
+            final int maxLength
+    ) {
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("maxLength must be at least 1");
+        }
+        List<Text> texts = flatten(component, serializerOptions);
+
+        boolean escapeMarkdown = serializerOptions.isEscapeMarkdown();
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        MarkdownWriter writer = new MarkdownWriter(chunk, serializerOptions);
+        try {
+            for (Text text : texts) {
+                CharSequence content = text.getContent();
+                int textStart = text.getStart();
+                int textEnd = text.getEnd();
+
+                boolean escape = escapeMarkdown && !writer.isInLink();
+                int overhead = writer.formattingLength(text, textStart, textEnd, escape);
+                if (chunk.length() + overhead + contentLength(content, textStart, textEnd, escape) <= maxLength) {
+                    writer.appendText(text, textStart, textEnd, escape);
+                    continue;
+                }
+
+                // Doesn't fit in this chunk, move it to the next one if it fits in one by itself
+                if (!writer.isEmpty() && formattingLength(text, serializerOptions, false) + contentLength(content, textStart, textEnd, escapeMarkdown) <= maxLength) {
+                    writer.finish();
+                    chunks.add(chunk.toString());
+                    chunk.setLength(0);
+                    writer = new MarkdownWriter(chunk, serializerOptions);
+                    writer.appendText(text, textStart, textEnd, escapeMarkdown);
+                    continue;
+                }
+
+                // Too long for any chunk, split it up, starting in this chunk if it can be split on whitespace
+                int start = textStart;
+                while (start < textEnd) {
+                    escape = escapeMarkdown && !writer.isInLink();
+                    int room = maxLength - chunk.length() - writer.formattingLength(text, start, textEnd, escape);
+                    int end = splitIndex(content, start, textEnd, room, escape, writer.isEmpty());
+                    if (end != start && end != textEnd && writer.formattingLength(text, start, end, escape) > maxLength - chunk.length() - contentLength(content, start, end, escape)) {
+                        // The formatting depends on where the content ends
+                        end = splitIndex(content, start, textEnd, room - 1, escape, writer.isEmpty());
+                    }
+                    if (end == start) {
+                        if (writer.isEmpty()) {
+                            throw new IllegalArgumentException("maxLength (" + maxLength + ") is too small to fit the formatting of a single character");
+                        }
+                        writer.finish();
+                        chunks.add(chunk.toString());
+                        chunk.setLength(0);
+                        writer = new MarkdownWriter(chunk, serializerOptions);
+                        continue;
+                    }
+
+                    writer.appendText(text, start, end, escape);
+                    start = end;
+                    if (start < textEnd) {
+                        writer.finish();
+                        chunks.add(chunk.toString());
+                        chunk.setLength(0);
+                        writer = new MarkdownWriter(chunk, serializerOptions);
+                    }
+                }
             }
+            writer.finish();
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+
+        if (chunk.length() > 0) {
+            chunks.add(chunk.toString());
+        }
+        return chunks;
+    }
+
+    /**
+     * Checks if the component is a single text component that would be written without any markdown.
+     */
+    private static boolean isPlain(Component component, DiscordSerializerOptions serializerOptions) {
+        if (!(component instanceof TextComponent) || !component.children().isEmpty() || !serializerOptions.isDefaultFlattener()) {
+            return false;
+        }
 
-            if (text.isBold()) {
-                stringBuilder.append("**");
+        Style style = component.style();
+        for (TextDecoration decoration : DECORATIONS) {
+            if (style.decoration(decoration) == TextDecoration.State.TRUE) {
+                return false;
             }
-            if (text.isStrikethrough()) {
-                stringBuilder.append("~~");
+        }
+        if (serializerOptions.isMaskedLinks() && (style.clickEvent() != null || style.hoverEvent() != null)) {
+            return false;
+        }
+
+        if (serializerOptions.isEscapeMarkdown()) {
+            String content = ((TextComponent) component).content();
+            for (int i = 0; i < content.length(); i++) {
+                if (isEscaped(content.charAt(i))) {
+                    return false;
+                }
             }
-            if (text.isItalic()) {
-                stringBuilder.append("_");
+        }
+        return true;
+    }
+
+    private List<Text> flatten(Component component, DiscordSerializerOptions serializerOptions) {
+        FlattenListener listener = new FlattenListener(serializerOptions, hoverCache);
+        serializerOptions.getFlattener().flatten(component, listener);
+        return listener.getTexts();
+    }
+
+    /**
+     * The length of everything {@link MarkdownWriter#appendText(Text, int, int, boolean)} appends besides the content,
+     * when every {@link Text} is formatted on its own.
+     */
+    private static int formattingLength(Text text, DiscordSerializerOptions serializerOptions, boolean separator) {
+        int length = separator ? 1 : 0;
+        length += 2 * OPENING_MARKERS[text.getFormatting()].length();
+        return length + linkLength(text, serializerOptions);
+    }
+
+    /**
+     * The length of the masked link around the content of the {@link Text}, if any.
+     */
+    private static int linkLength(Text text, DiscordSerializerOptions serializerOptions) {
+        String openUrl = text.getOpenUrl();
+        if (!serializerOptions.isMaskedLinks() || openUrl == null) {
+            return 0;
+        }
+
+        // [](<openUrl>)
+        int length = 6 + openUrl.length();
+        String display = text.getUrlHover();
+        if (display != null) {
+            // space and quotes
+            length += 3 + display.length();
+        }
+        return length;
+    }
+
+    /**
+     * If the character is a word character for {@code \b}, erring on the side of being one.
+     */
+    private static boolean isWordCharacter(char character) {
+        return character == '_'
+                || Character.isLetterOrDigit(character)
+                || Character.isSurrogate(character)
+                || Character.getType(character) == Character.NON_SPACING_MARK;
+    }
+
+    /**
+     * The length of the given range of content once appended, including escapes.
+     */
+    private static int contentLength(CharSequence content, int start, int end, boolean escape) {
+        int length = end - start;
+        if (escape) {
+            for (int i = start; i < end; i++) {
+                if (isEscaped(content.charAt(i))) {
+                    length++;
+                }
             }
-            if (text.isUnderline()) {
-                stringBuilder.append("__");
+        }
+        return length;
+    }
+
+    /**
+     * Finds where to split the content starting at the given index, so that the content before it fits in the given room.
+     * Escaped characters and surrogate pairs are never split.
+     *
+     * @param content the content
+     * @param start the start of the content that is left
+     * @param end the end of the content
+     * @param room the space available for content
+     * @param escape if markdown characters are escaped
+     * @param allowMidWord if the content may be split somewhere other than after whitespace
+     * @return the end index for the content that fits, {@code start} if none of it fits
+     */
+    private static int splitIndex(CharSequence content, int start, int end, int room, boolean escape, boolean allowMidWord) {
+        int length = 0;
+        int lastWhitespace = -1;
+        int i = start;
+        while (i < end) {
+            char character = content.charAt(i);
+            int characterCount = Character.isHighSurrogate(character) && i + 1 < end && Character.isLowSurrogate(content.charAt(i + 1)) ? 2 : 1;
+            int characterLength = escape && isEscaped(character) ? 2 : characterCount;
+            if (length + characterLength > room) {
+                break;
             }
 
-            // Markdown doesn't apply inside links
-            if (serializerOptions.isEscapeMarkdown() && !LINK_PATTERN.matcher(stringBuilder).find()) {
-                content = content
-                        .replace("*", "\\*")
-                        .replace("~", "\\~")
-                        .replace("_", "\\_")
-                        .replace("`", "\\`")
-                        .replace("|", "\\|");
+            length += characterLength;
+            i += characterCount;
+            if (Character.isWhitespace(character)) {
+                lastWhitespace = i;
             }
+        }
+        if (i == end) {
+            return end;
+        }
+        if (lastWhitespace != -1) {
+            return lastWhitespace;
+        }
+        return allowMidWord ? i : start;
+    }
+
+    private static boolean isEscaped(char character) {
+        return character < ESCAPED_CHARACTERS.length && ESCAPED_CHARACTERS[character];
+    }
+
+    /**
+     * Writes markdown to an {@link Appendable}, keeping track of the formatting that is open
+     * and if the output so far ends inside of a link.
+     */
+    private static class MarkdownWriter {
+
+        private final Appendable appendable;
+        private final DiscordSerializerOptions serializerOptions;
+        private final boolean compact;
+        private final LinkTracker linkTracker;
+
+        private boolean empty = true;
+        private char lastCharacter;
+
+        /**
+         * The formatting left open by the previous {@link Text}, only used with compact formatting.
+         */
+        private int formatting = 0;
+
+        /**
+         * If italics and underline were opened together ("___"), in which case they also have to be closed together.
+         */
+        private boolean italicUnderline = false;
+
+        public MarkdownWriter(Appendable appendable, DiscordSerializerOptions serializerOptions) {
+            this.appendable = appendable;
+            this.serializerOptions = serializerOptions;
+            this.compact = serializerOptions.isCompactFormatting();
+            this.linkTracker = serializerOptions.isEscapeMarkdown() ? new LinkTracker() : null;
+        }
+
+        /**
+         * Checks if nothing has been written yet.
+         * @return true if nothing has been written
+         */
+        public boolean isEmpty() {
+            return empty;
+        }
+
+        /**
+         * Appends the given range of the {@link Text}'s content with the formatting of the {@link Text}.
+         * With compact formatting, formatting that the next {@link Text} keeps is left open, {@link #finish()} closes it.
+         */
+        public void appendText(Text text, int start, int end, boolean escape) throws IOException {
+            int next = text.getFormatting();
+            int close = 0, open = next;
+            boolean separator = !empty;
+            if (compact) {
+                int keep = keptFormatting(next);
+                close = formatting & ~keep;
+                open = next & ~keep;
+                separator = needsSeparator(close, open, firstCharacter(text, start, escape));
+            }
+
+            appendClosing(close);
+            if (separator) {
+                // Separator for formatting, since going from bold -> bold underline
+                // would lead to "**bold****__bold underline__**" which doesn't work
+                append('\u200B'); // zero width space
+            }
+            appendOpening(open);
 
             String openUrl = text.getOpenUrl();
-            if (serializerOptions.isMaskedLinks() && openUrl != null) {
+            boolean maskedLink = serializerOptions.isMaskedLinks() && openUrl != null;
+            if (maskedLink) {
+                append('[');
+            }
+
+            CharSequence content = text.getContent();
+            if (escape) {
+                appendEscaped(content, start, end);
+            } else {
+                append(content, start, end);
+            }
+
+            if (maskedLink) {
+                append("](<").append(openUrl).append('>');
                 String display = text.getUrlHover();
-                content = "[" + content + "](<" + openUrl + ">" + (display != null ? " \"" + display + "\"" : "") + ")";
+                if (display != null) {
+                    append(" \"").append(display).append('"');
+                }
+                append(')');
+            }
+
+            if (compact) {
+                if ((open & (ITALIC | UNDERLINE)) == (ITALIC | UNDERLINE)) {
+                    italicUnderline = true;
+                } else if ((next & (ITALIC | UNDERLINE)) != (ITALIC | UNDERLINE)) {
+                    italicUnderline = false;
+                }
+                formatting = next;
+            } else {
+                appendClosing(next);
+            }
+        }
+
+        /**
+         * The length of everything {@link #appendText(Text, int, int, boolean)} would append besides the content,
+         * including closing all the formatting afterwards.
+         */
+        public int formattingLength(Text text, int start, int end, boolean escape) {
+            if (!compact) {
+                return DiscordSerializer.formattingLength(text, serializerOptions, !empty);
+            }
+
+            int next = text.getFormatting();
+            int keep = keptFormatting(next);
+            int close = formatting & ~keep;
+            int open = next & ~keep;
+            int length = CLOSING_MARKERS[close].length() + OPENING_MARKERS[open].length() + CLOSING_MARKERS[next].length();
+            if (close != 0 && needsSeparatorBeforeClosing(close)) {
+                length++;
+            }
+            if (needsSeparator(close, open, firstCharacter(text, start, escape))) {
+                length++;
+            }
+            if (next != 0 && lastCharacter(text, end) == CLOSING_MARKERS[next].charAt(0)) {
+                // Separator before closing, see needsSeparatorBeforeClosing
+                length++;
+            }
+            return length + linkLength(text, serializerOptions);
+        }
+
+        /**
+         * Closes the formatting that is still open.
+         */
+        public void finish() throws IOException {
+            appendClosing(formatting);
+            formatting = 0;
+            italicUnderline = false;
+        }
+
+        /**
+         * The open formatting that can stay open for the given formatting, formatting inside of formatting that
+         * changes has to be closed as well.
+         */
+        private int keptFormatting(int next) {
+            int changed = formatting ^ next;
+            if (changed == 0) {
+                return formatting;
+            }
+            if (italicUnderline && (changed & UNDERLINE) != 0) {
+                changed |= ITALIC;
+            }
+            return formatting & (Integer.lowestOneBit(changed) - 1);
+        }
+
+        /**
+         * Checks if a separator is required before closing formatting, because the content ends with the same
+         * character as the first closing marker ("~~a\~~~" would close at the escaped "~").
+         */
+        private boolean needsSeparatorBeforeClosing(int close) {
+            return !empty && lastCharacter == CLOSING_MARKERS[close].charAt(0);
+        }
+
+        /**
+         * Checks if a separator is required between closing and opening formatting, for markers that would
+         * otherwise run into the same character and for italics which need to be at a word boundary.
+         */
+        private boolean needsSeparator(int close, int open, char nextCharacter) {
+            if (empty || (close == 0 && open == 0)) {
+                return false;
+            }
+
+            // The outermost marker is closed last and opened first
+            int lastClosed = Integer.lowestOneBit(close);
+            int firstOpened = Integer.lowestOneBit(open);
+            String closing = CLOSING_MARKERS[close];
+            char before = close != 0 ? closing.charAt(closing.length() - 1) : lastCharacter;
+            char after = open != 0 ? OPENING_MARKERS[open].charAt(0) : nextCharacter;
+            if (before == after) {
+                return true;
+            }
+            return (lastClosed == ITALIC && isWordCharacter(after)) || (firstOpened == ITALIC && isWordCharacter(before));
+        }
+
+        private char firstCharacter(Text text, int start, boolean escape) {
+            if (serializerOptions.isMaskedLinks() && text.getOpenUrl() != null) {
+                return '[';
+            }
+            char character = text.getContent().charAt(start);
+            return escape && isEscaped(character) ? '\\' : character;
+        }
+
+        private char lastCharacter(Text text, int end) {
+            if (serializerOptions.isMaskedLinks() && text.getOpenUrl() != null) {
+                return ')';
+            }
+            return text.getContent().charAt(end - 1);
+        }
+
+        private void appendOpening(int formatting) throws IOException {
+            if (formatting != 0) {
+                append(OPENING_MARKERS[formatting]);
+            }
+        }
+
+        private void appendClosing(int formatting) throws IOException {
+            if (formatting == 0) {
+                return;
+            }
+            if (compact && needsSeparatorBeforeClosing(formatting)) {
+                append('\u200B'); // zero width space
             }
+            append(CLOSING_MARKERS[formatting]);
+        }
 
-            stringBuilder.append(content);
+        public MarkdownWriter append(char character) throws IOException {
+            appendable.append(character);
+            empty = false;
+            lastCharacter = character;
+            if (linkTracker != null) {
+                linkTracker.accept(character);
+            }
+            return this;
+        }
+
+        public MarkdownWriter append(CharSequence content) throws IOException {
+            return append(content, 0, content.length());
+        }
 
-            if (text.isUnderline()) {
-                stringBuilder.append("__");
+        public MarkdownWriter append(CharSequence content, int start, int end) throws IOException {
+            if (start == end) {
+                return this;
+            }
+            appendable.append(content, start, end);
+            empty = false;
+            lastCharacter = content.charAt(end - 1);
+            if (linkTracker != null) {
+                for (int i = start; i < end; i++) {
+                    linkTracker.accept(content.charAt(i));
+                }
             }
-            if (text.isItalic()) {
-                stringBuilder.append("_");
+            return this;
+        }
+
+        /**
+         * Appends the given range of content, escaping markdown characters in a single pass.
+         * Content without any markdown characters is appended as-is.
+         *
+         * @param content the content to escape
+         * @param start the start of the range in the content, inclusive
+         * @param end the end of the range in the content, exclusive
+         */
+        public void appendEscaped(CharSequence content, int start, int end) throws IOException {
+            int unescapedFrom = start;
+            for (int i = start; i < end; i++) {
+                char character = content.charAt(i);
+                if (isEscaped(character)) {
+                    append(content, unescapedFrom, i).append('\\');
+                    unescapedFrom = i;
+                }
             }
-            if (text.isStrikethrough()) {
-                stringBuilder.append("~~");
+            append(content, unescapedFrom, end);
+        }
+
+        /**
+         * Checks if the output so far ends inside of a link, where markdown doesn't apply.
+         * @return true if the output ends inside of a link
+         */
+        public boolean isInLink() {
+            return linkTracker != null && linkTracker.isInLink();
+        }
+    }
+
+    /**
+     * Tracks if the end of the output is inside of a link, giving the same result as finding
+     * {@code (https?://.*\.[^ ]*)$} in the output, by looking at every appended character once.
+     */
+    private static class LinkTracker {
+
+        private int schemeProgress = 0;
+        private boolean schemeOnLine = false;
+        private boolean inLink = false;
+
+        public boolean isInLink() {
+            return inLink;
+        }
+
+        public void accept(char c) {
+            switch (c) {
+                case '\n':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    // "." doesn't match line terminators, the link has to be on the same line as the scheme
+                    schemeOnLine = false;
+                    break;
+                case ' ':
+                    inLink = false;
+                    break;
+                case '.':
+                    if (schemeOnLine) {
+                        inLink = true;
+                    }
+                    break;
             }
-            if (text.isBold()) {
-                stringBuilder.append("**");
+
+            // "http://" or "https://"
+            switch (schemeProgress) {
+                case 0: schemeProgress = c == 'h' ? 1 : 0; break;
+                case 1: schemeProgress = c == 't' ? 2 : restartScheme(c); break;
+                case 2: schemeProgress = c == 't' ? 3 : restartScheme(c); break;
+                case 3: schemeProgress = c == 'p' ? 4 : restartScheme(c); break;
+                case 4: schemeProgress = c == 's' ? 5 : c == ':' ? 6 : restartScheme(c); break;
+                case 5: schemeProgress = c == ':' ? 6 : restartScheme(c); break;
+                case 6: schemeProgress = c == '/' ? 7 : restartScheme(c); break;
+                case 7:
+                    if (c == '/') {
+                        schemeOnLine = true;
+                        schemeProgress = 0;
+                    } else {
+                        schemeProgress = restartScheme(c);
+                    }
+                    break;
             }
+        }
 
-            // Separator for formatting, since going from bold -> bold underline
-            // would lead to "**bold****__bold underline__**" which doesn't work
-            stringBuilder.append("\u200B"); // zero width space
+        private static int restartScheme(char c) {
+            return c == 'h' ? 1 : 0;
         }
-        int length = stringBuilder.length();
-        return length < 1 ? "" : stringBuilder.substring(0, length - 1);
     }
 
+    /**
+     * Flattens a {@link Component} into {@link Text}s, which share one content buffer.
+     * Styles are kept on a stack by identity, a {@link TextStyle} is only created when a pushed {@link Style} changes the formatting.
+     */
     private static class FlattenListener implements FlattenerListener {
 
-        private final Map<Style, Text> previousText = new HashMap<>();
+        private final StringBuilder content = new StringBuilder();
         private final List<Text> texts = new ArrayList<>();
-        private Text currentText = null;
+        private final Deque<TextStyle> styles = new ArrayDeque<>();
+        private TextStyle currentStyle = TextStyle.NONE;
+        private int textStart = 0;
 
         private final DiscordSerializerOptions serializerOptions;
+        private final HoverCache hoverCache;
         private final boolean gatherLinks;
 
-        public FlattenListener(DiscordSerializerOptions serializerOptions) {
+        public FlattenListener(DiscordSerializerOptions serializerOptions, HoverCache hoverCache) {
             this.serializerOptions = serializerOptions;
+            this.hoverCache = hoverCache;
             this.gatherLinks = serializerOptions.isMaskedLinks();
         }
 
         public List<Text> getTexts() {
-            if (currentText != null) {
-                texts.add(currentText);
-            }
+            endText();
             return texts;
         }
 
         @Override
         public void pushStyle(@NotNull Style style) {
-            Boolean isBold = null, isItalic = null, isUnderline = null, isStrikethrough = null;
-
-            Text text;
-            if (currentText != null) {
-                text = currentText.clone();
-                text.getContent().setLength(0);
-            } else {
-                text = new Text();
-            }
+            TextStyle textStyle = currentStyle;
 
-            TextDecoration.State bold = style.decoration(TextDecoration.BOLD);
-            if (bold != TextDecoration.State.NOT_SET) {
-                boolean wasBold = text.isBold();
-                text.setBold(bold == TextDecoration.State.TRUE);
-            }
-
-            TextDecoration.State italic = style.decoration(TextDecoration.ITALIC);
-            if (italic != TextDecoration.State.NOT_SET) {
-                boolean wasItalic = text.isItalic();
-                text.setItalic(italic == TextDecoration.State.TRUE);
-            }
-
-            TextDecoration.State underline = style.decoration(TextDecoration.UNDERLINED);
-            if (underline != TextDecoration.State.NOT_SET) {
-                boolean wasUnderline = text.isUnderline();
-                text.setUnderline(underline == TextDecoration.State.TRUE);
-            }
-
-            TextDecoration.State strikethrough = style.decoration(TextDecoration.STRIKETHROUGH);
-            if (strikethrough != TextDecoration.State.NOT_SET) {
-                boolean wasStrikethrough = text.isStrikethrough();
-                text.setStrikethrough(strikethrough == TextDecoration.State.TRUE);
+            for (int i = 0; i < DECORATIONS.length; i++) {
+                TextDecoration.State state = style.decoration(DECORATIONS[i]);
+                if (state != TextDecoration.State.NOT_SET) {
+                    textStyle = textStyle.withFormatting(1 << i, state == TextDecoration.State.TRUE);
+                }
             }
 
             ClickEvent clickEvent = style.clickEvent();
             if (gatherLinks && clickEvent != null && clickEvent.action() == ClickEvent.Action.OPEN_URL) {
-                text.setOpenUrl(clickEvent.value());
+                textStyle = textStyle.withOpenUrl(clickEvent.value());
             }
 
             HoverEvent<?> hoverEvent = style.hoverEvent();
             if (gatherLinks && hoverEvent != null && hoverEvent.action() == HoverEvent.Action.SHOW_TEXT) {
-                FlattenToTextOnly flatten = new FlattenToTextOnly();
-                serializerOptions.getFlattener().flatten((Component) hoverEvent.value(), flatten);
-                text.setUrlHover(flatten.getContent());
+                String urlHover = hoverCache.get(serializerOptions.getFlattener(), (Component) hoverEvent.value());
+                textStyle = textStyle.withUrlHover(urlHover);
             }
 
-            if (currentText == null) {
-                currentText = text;
-            } else if (!text.formattingMatches(currentText)) {
+            styles.push(currentStyle);
+            if (textStyle != currentStyle) {
                 // If formatting is different in any way, switch to a new text part because
                 // "**bold __bold underline** underline__" does not work
-                texts.add(currentText);
-                previousText.put(style, currentText.clone());
-                currentText = text;
+                endText();
+                currentStyle = textStyle;
             }
         }
 
         @Override
         public void popStyle(@NotNull Style style) {
-            Text pop = previousText.remove(style);
-            if (pop != null) {
-                texts.add(currentText);
-                currentText = pop;
-                currentText.getContent().setLength(0);
+            TextStyle previousStyle = styles.pop();
+            if (previousStyle != currentStyle) {
+                endText();
+                currentStyle = previousStyle;
             }
         }
 
         @Override
         public void component(@NotNull String text) {
-            if (currentText == null) {
-                currentText = new Text();
+            content.append(text);
+        }
+
+        private void endText() {
+            int textEnd = content.length();
+            if (textEnd != textStart) {
+                texts.add(new Text(currentStyle, content, textStart, textEnd));
+                textStart = textEnd;
             }
-            currentText.appendContent(text);
+        }
+    }
+
+    /**
+     * A bounded cache of flattened hover texts, by {@link ComponentFlattener} and hover {@link Component}.
+     * Components are looked up by identity first, and by equality if the same instance wasn't seen recently.
+     */
+    private static class HoverCache {
+
+        private static final int IDENTITY_SIZE = 64; // power of two
+        private static final int EQUALITY_SIZE = 256;
+
+        /**
+         * Direct mapped by the identity hash code of the component, the entries are immutable.
+         */
+        private final AtomicReferenceArray<Map.Entry<HoverKey, String>> identityEntries = new AtomicReferenceArray<>(IDENTITY_SIZE);
+        private final Map<HoverKey, String> equalityEntries = new LinkedHashMap<HoverKey, String>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HoverKey, String> eldest) {
+                return size() > EQUALITY_SIZE;
+            }
+        };
+
+        public String get(ComponentFlattener flattener, Component component) {
+            int index = System.identityHashCode(component) & (IDENTITY_SIZE - 1);
+            Map.Entry<HoverKey, String> entry = identityEntries.get(index);
+            if (entry != null && entry.getKey().component == component && entry.getKey().flattener == flattener) {
+                return entry.getValue();
+            }
+
+            HoverKey key = new HoverKey(flattener, component);
+            String content;
+            synchronized (equalityEntries) {
+                content = equalityEntries.get(key);
+            }
+            if (content == null) {
+                FlattenToTextOnly flatten = new FlattenToTextOnly();
+                flattener.flatten(component, flatten);
+                content = flatten.getContent();
+                synchronized (equalityEntries) {
+                    equalityEntries.put(key, content);
+                }
+            }
+            identityEntries.set(index, new AbstractMap.SimpleImmutableEntry<>(key, content));
+            return content;
+        }
+    }
+
+    private static class HoverKey {
+
+        private final ComponentFlattener flattener;
+        private final Component component;
+        private final int hashCode;
+
+        public HoverKey(ComponentFlattener flattener, Component component) {
+            this.flattener = flattener;
+            this.component = component;
+            this.hashCode = 31 * System.identityHashCode(flattener) + component.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            HoverKey hoverKey = (HoverKey) o;
+            return flattener == hoverKey.flattener && component.equals(hoverKey.component);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
         }
     }
 
@@ -289,132 +947,96 @@ public class DiscordSerializer implements ComponentEncoder<Component, String> {
         }
     }
 
+    /**
+     * A part of the content with the same {@link TextStyle}.
+     */
     private static class Text {
 
-        private final StringBuilder content = new StringBuilder();
-        private boolean bold;
-        private boolean strikethrough;
-        private boolean underline;
-        private boolean italic;
-
-        private String openUrl;
-        private String urlHover;
-
-        public Text() {}
-
-        private Text(
-                StringBuilder content,
-                boolean bold,
-                boolean strikethrough,
-                boolean underline,
-                boolean italic,
-                String openUrl,
-                String urlHover
-        ) {
-            this.content.append(content);
-            this.bold = bold;
-            this.strikethrough = strikethrough;
-            this.underline = underline;
-            this.italic = italic;
-            this.openUrl = openUrl;
-            this.urlHover = urlHover;
+        private final TextStyle style;
+        private final CharSequence content;
+        private final int start;
+        private final int end;
+
+        public Text(TextStyle style, CharSequence content, int start, int end) {
+            this.style = style;
+            this.content = content;
+            this.start = start;
+            this.end = end;
         }
 
-        public StringBuilder getContent() {
+        /**
+         * The content shared by all the {@link Text}s, use with {@link #getStart()} and {@link #getEnd()}.
+         * @return the content buffer
+         */
+        public CharSequence getContent() {
             return content;
         }
 
-        public void appendContent(String content) {
-            this.content.append(content);
+        public int getStart() {
+            return start;
         }
 
-        public boolean isBold() {
-            return bold;
+        public int getEnd() {
+            return end;
         }
 
-        public void setBold(boolean bold) {
-            this.bold = bold;
+        public int getFormatting() {
+            return style.getFormatting();
         }
 
-        public boolean isStrikethrough() {
-            return strikethrough;
+        public String getOpenUrl() {
+            return style.getOpenUrl();
         }
 
-        public void setStrikethrough(boolean strikethrough) {
-            this.strikethrough = strikethrough;
+        public String getUrlHover() {
+            return style.getUrlHover();
         }
+    }
 
-        public boolean isUnderline() {
-            return underline;
-        }
+    /**
+     * The formatting and link of a {@link Text}. Immutable, the {@code with} methods return the same instance if nothing changes.
+     */
+    private static class TextStyle {
 
-        public void setUnderline(boolean underline) {
-            this.underline = underline;
-        }
+        private static final TextStyle NONE = new TextStyle(0, null, null);
+
+        /**
+         * The formatting as bits, {@link #BOLD}, {@link #STRIKETHROUGH}, {@link #ITALIC} and {@link #UNDERLINE}.
+         */
+        private final int formatting;
 
-        public boolean isItalic() {
-            return italic;
+        private final String openUrl;
+        private final String urlHover;
+
+        private TextStyle(int formatting, String openUrl, String urlHover) {
+            this.formatting = formatting;
+            this.openUrl = openUrl;
+            this.urlHover = urlHover;
         }
 
-        public void setItalic(boolean italic) {
-            this.italic = italic;
+        public int getFormatting() {
+            return formatting;
         }
 
         public String getOpenUrl() {
             return openUrl;
         }
 
-        public void setOpenUrl(String openUrl) {
-            this.openUrl = openUrl;
-        }
-
         public String getUrlHover() {
             return urlHover;
         }
 
-        public void setUrlHover(String urlHover) {
-            this.urlHover = urlHover;
+        public TextStyle withFormatting(int bit, boolean enabled) {
+            int formatting = enabled ? this.formatting | bit : this.formatting & ~bit;
+            return this.formatting == formatting ? this : new TextStyle(formatting, openUrl, urlHover);
         }
 
-        /**
-         * Checks if the formatting matches between this and another Text object.
-         *
-         * @param other The other Text object.
-         * @return true if the formatting matches the other Text object.
-         */
-        public boolean formattingMatches(Text other) {
-            return other != null
-                    && bold == other.bold
-                    && strikethrough == other.strikethrough
-                    && underline == other.underline
-                    && italic == other.italic
-                    && Objects.equals(openUrl, other.openUrl)
-                    && Objects.equals(urlHover, other.urlHover);
-        }
-
-        @SuppressWarnings("MethodDoesntCallSuperMethod")
-        @Override
-        public Text clone() {
-            return new Text(content, bold, strikethrough, underline, italic, openUrl, urlHover);
+        public TextStyle withOpenUrl(String openUrl) {
+            return Objects.equals(this.openUrl, openUrl) ? this : new TextStyle(formatting, openUrl, urlHover);
         }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Text text = (Text) o;
-            return bold == text.bold
-                    && strikethrough == text.strikethrough
-                    && underline == text.underline
-                    && italic == text.italic
-                    && content.toString().contentEquals(text.content)
-                    && Objects.equals(openUrl, text.openUrl)
-                    && Objects.equals(urlHover, text.urlHover);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(content, bold, strikethrough, underline, italic, openUrl, urlHover);
+        public TextStyle withUrlHover(String urlHover) {
+            return Objects.equals(this.urlHover, urlHover) ? this : new TextStyle(formatting, openUrl, urlHover);
         }
     }
 
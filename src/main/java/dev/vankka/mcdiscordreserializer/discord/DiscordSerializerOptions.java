@@ -29,21 +29,22 @@ import java.util.function.Function;
  */
 public final class DiscordSerializerOptions {
 
+    /**
+     * The flattener of {@link #defaults()}, which flattens text components to their content.
+     */
+    @SuppressWarnings("deprecation")
+    private static final ComponentFlattener DEFAULT_FLATTENER = ComponentFlattener.builder()
+            .mapper(TextComponent.class, TextComponent::content)
+            .mapper(ScoreComponent.class, ScoreComponent::value)
+            .mapper(SelectorComponent.class, SelectorComponent::pattern)
+            .build();
+
     /**
      * Creates the default {@link DiscordSerializerOptions}.
      * @return the default {@link DiscordSerializerOptions}.
      */
-    @SuppressWarnings("deprecation")
     public static DiscordSerializerOptions defaults() {
-        return new DiscordSerializerOptions(
-                false,
-                true,
-                ComponentFlattener.builder()
-                        .mapper(TextComponent.class, TextComponent::content)
-                        .mapper(ScoreComponent.class, ScoreComponent::value)
-                        .mapper(SelectorComponent.class, SelectorComponent::pattern)
-                        .build()
-        );
+        return new DiscordSerializerOptions(false, true, DEFAULT_FLATTENER);
     }
 
     private final boolean maskedLinks;
@@ -53,6 +54,8 @@ public final class DiscordSerializerOptions {
     @NotNull
     private final ComponentFlattener flattener;
 
+    private final boolean compactFormatting;
+
     public DiscordSerializerOptions(
             boolean embedLinks,
             boolean escapeMarkdown,
@@ -73,10 +76,20 @@ public final class DiscordSerializerOptions {
             boolean maskedLinks,
             boolean escapeMarkdown,
             @NotNull ComponentFlattener flattener
+    ) {
+        this(maskedLinks, escapeMarkdown, flattener, false);
+    }
+
+    public DiscordSerializerOptions(
+            boolean maskedLinks,
+            boolean escapeMarkdown,
+            @NotNull ComponentFlattener flattener,
+            boolean compactFormatting
     ) {
         this.maskedLinks = maskedLinks;
         this.escapeMarkdown = escapeMarkdown;
         this.flattener = flattener;
+        this.compactFormatting = compactFormatting;
     }
 
     public boolean isMaskedLinks() {
@@ -84,7 +97,7 @@ public final class DiscordSerializerOptions {
     }
 
     public DiscordSerializerOptions withMaskedLinks(boolean maskedLinks) {
-        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener);
+        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener, compactFormatting);
     }
 
     /**
@@ -102,15 +115,41 @@ public final class DiscordSerializerOptions {
      * @return the new instance
      */
     public DiscordSerializerOptions withEscapeMarkdown(boolean escapeMarkdown) {
-        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener);
+        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener, compactFormatting);
     }
 
     public @NotNull ComponentFlattener getFlattener() {
         return flattener;
     }
 
+    /**
+     * If the flattener is the one from {@link #defaults()}, which flattens a text component to its content.
+     */
+    boolean isDefaultFlattener() {
+        return flattener == DEFAULT_FLATTENER;
+    }
+
     public DiscordSerializerOptions withFlattener(ComponentFlattener flattener) {
-        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener);
+        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener, compactFormatting);
+    }
+
+    /**
+     * If compact formatting should be used, which keeps formatting open between text parts that share it
+     * and only uses zero width space separators where the markdown would otherwise be ambiguous.
+     * @return if these options have compact formatting enabled
+     */
+    public boolean isCompactFormatting() {
+        return compactFormatting;
+    }
+
+    /**
+     * Creates a new instance of {@link dev.vankka.mcdiscordreserializer.discord.DiscordSerializerOptions}
+     * based on this instance with compactFormatting set to the provided value.
+     * @param compactFormatting {@code true} to only close and reopen formatting that changes between text parts
+     * @return the new instance
+     */
+    public DiscordSerializerOptions withCompactFormatting(boolean compactFormatting) {
+        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener, compactFormatting);
     }
 
     /**
@@ -132,7 +171,7 @@ public final class DiscordSerializerOptions {
      */
     @Deprecated
     public DiscordSerializerOptions withEmbedLinks(boolean embedLinks) {
-        return new DiscordSerializerOptions(embedLinks, escapeMarkdown, flattener);
+        return new DiscordSerializerOptions(embedLinks, escapeMarkdown, flattener, compactFormatting);
     }
 
     /**
@@ -154,7 +193,7 @@ public final class DiscordSerializerOptions {
      */
     @Deprecated
     public DiscordSerializerOptions withKeybindProvider(Function<KeybindComponent, String> keybindProvider) {
-        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener.toBuilder().mapper(KeybindComponent.class, keybindProvider).build());
+        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener.toBuilder().mapper(KeybindComponent.class, keybindProvider).build(), compactFormatting);
     }
 
     /**
@@ -177,7 +216,7 @@ public final class DiscordSerializerOptions {
      */
     @Deprecated
     public DiscordSerializerOptions withTranslationProvider(Function<TranslatableComponent, String> translationProvider) {
-        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener.toBuilder().mapper(TranslatableComponent.class, translationProvider).build());
+        return new DiscordSerializerOptions(maskedLinks, escapeMarkdown, flattener.toBuilder().mapper(TranslatableComponent.class, translationProvider).build(), compactFormatting);
     }
 
     @Override
@@ -186,6 +225,7 @@ public final class DiscordSerializerOptions {
                 "maskedLinks=" + maskedLinks +
                 ", escapeMarkdown=" + escapeMarkdown +
                 ", flattener=" + flattener +
+                ", compactFormatting=" + compactFormatting +
                 '}';
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.minecraft;
+
+import dev.vankka.mcdiscordreserializer.cache.CacheStats;
+import dev.vankka.mcdiscordreserializer.cache.LruCache;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link MinecraftSerializer} that caches the {@link Component}s produced by another serializer,
+ * for messages that are sent over and over again. {@link Component}s are immutable, so they can be shared.<br/>
+ * Messages that fall back to plain text because they exceed the {@link MinecraftSerializerOptions parsing limits}
+ * are not cached, unless the wrapped serializer is a subclass of {@link MinecraftSerializer}.<br/>
+ * Options are compared by identity, so the same options instance should be reused.
+ *
+ * @see LruCache
+ */
+@SuppressWarnings("unused") // API
+public class CachingMinecraftSerializer extends MinecraftSerializer {
+
+    private final MinecraftSerializer serializer;
+    private final LruCache<CacheKey, Component> cache;
+
+    /**
+     * Creates a caching serializer for a new {@link MinecraftSerializer} with the default options.
+     *
+     * @param maximumSize the maximum amount of cached messages
+     * @param expireAfterWrite how long messages are cached for, {@code 0} to only evict messages for size
+     * @param unit the unit of expireAfterWrite
+     * @throws IllegalArgumentException if the maximumSize is less than 1 or expireAfterWrite is negative
+     */
+    public CachingMinecraftSerializer(int maximumSize, long expireAfterWrite, @NotNull TimeUnit unit) {
+        this(new MinecraftSerializer(), maximumSize, expireAfterWrite, unit);
+    }
+
+    /**
+     * Creates a caching serializer for the given serializer, the default options of the given serializer are used.
+     *
+     * @param serializer the serializer to cache the output of
+     * @param maximumSize the maximum amount of cached messages
+     * @param expireAfterWrite how long messages are cached for, {@code 0} to only evict messages for size
+     * @param unit the unit of expireAfterWrite
+     * @throws IllegalArgumentException if the maximumSize is less than 1 or expireAfterWrite is negative
+     */
+    public CachingMinecraftSerializer(
+            @NotNull MinecraftSerializer serializer,
+            int maximumSize,
+            long expireAfterWrite,
+            @NotNull TimeUnit unit
+    ) {
+        super(serializer.getDefaultOptions());
+        this.serializer = serializer;
+        this.cache = new LruCache<>(maximumSize, expireAfterWrite, unit);
+    }
+
+    @Override
+    public @NotNull MinecraftSerializerOptions<Component> getDefaultOptions() {
+        return serializer.getDefaultOptions();
+    }
+
+    @Override
+    public void setDefaultOptions(@NotNull MinecraftSerializerOptions<Component> defaultOptions) {
+        serializer.setDefaultOptions(defaultOptions);
+    }
+
+    @Override
+    public @NotNull Component serialize(@NotNull String discordMessage, @NotNull MinecraftSerializerOptions<Component> serializerOptions) {
+        if (serializer.getClass() != MinecraftSerializer.class) {
+            // the serializer may have its own way of serializing, which can't tell us when it fell back to plain text
+            return cache.get(new CacheKey(discordMessage, serializerOptions), key -> serializer.serialize(discordMessage, serializerOptions));
+        }
+
+        try {
+            return cache.get(
+                    new CacheKey(discordMessage, serializerOptions),
+                    key -> serializer.serializeWithinLimits(discordMessage, serializerOptions)
+            );
+        } catch (ParseLimitException ignored) {
+            // not cached, the message may be parsed within the limits next time
+            return Component.text(discordMessage);
+        }
+    }
+
+    /**
+     * Gets a snapshot of the hit, miss and eviction counts of this serializer's cache.
+     * @return the cache statistics
+     */
+    @NotNull
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Removes all cached messages, for example after changing a renderer's behaviour.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private static class CacheKey {
+
+        private final String discordMessage;
+        private final MinecraftSerializerOptions<Component> serializerOptions;
+
+        public CacheKey(String discordMessage, MinecraftSerializerOptions<Component> serializerOptions) {
+            this.discordMessage = discordMessage;
+            this.serializerOptions = serializerOptions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CacheKey cacheKey = (CacheKey) o;
+            return serializerOptions == cacheKey.serializerOptions && discordMessage.equals(cacheKey.discordMessage);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(serializerOptions) + discordMessage.hashCode();
+        }
+    }
+}
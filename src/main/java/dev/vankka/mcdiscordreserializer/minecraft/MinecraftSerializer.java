@@ -18,16 +18,24 @@
 
 package dev.vankka.mcdiscordreserializer.minecraft;
 
+import dev.vankka.mcdiscordreserializer.renderer.MinecraftRenderer;
 import dev.vankka.mcdiscordreserializer.renderer.NodeRenderer;
 import dev.vankka.mcdiscordreserializer.renderer.implementation.DefaultMinecraftRenderer;
+import dev.vankka.mcdiscordreserializer.rules.CompactTree;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownParser;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownVisitor;
+import dev.vankka.mcdiscordreserializer.rules.StyleNode;
 import dev.vankka.simpleast.core.node.Node;
 import dev.vankka.simpleast.core.node.TextNode;
-import dev.vankka.simpleast.core.parser.Parser;
+import net.kyori.adventure.text.BuildableComponent;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentBuilder;
+import net.kyori.adventure.text.TextComponent;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.function.Function;
 
@@ -41,6 +49,18 @@ import java.util.function.Function;
 @SuppressWarnings("unused") // API
 public class MinecraftSerializer {
 
+    /**
+     * Characters that Discord markdown can start with, indexed by character.
+     * Links are the only markdown that starts with a letter, they're checked for separately.
+     */
+    private static final boolean[] MARKDOWN_CHARACTERS = new boolean[128];
+
+    static {
+        for (char character : new char[] {'\\', '\n', '*', '_', '~', '|', '`', '<', '>'}) {
+            MARKDOWN_CHARACTERS[character] = true;
+        }
+    }
+
     /**
      * Default instance of the MinecraftSerializer, incase that's all you need.
      * Using {@link MinecraftSerializer#setDefaultOptions(MinecraftSerializerOptions)} is not allowed.
@@ -107,21 +127,57 @@ public class MinecraftSerializer {
      *
      * @param discordMessage    a Discord markdown message
      * @param serializerOptions The options to use for this serialization
-     * @return the Discord message formatted to a Minecraft TextComponent
+     * @return the Discord message formatted to a Minecraft TextComponent,
+     * or as plain text if the message exceeds the parsing limits of the options
      * @see MinecraftSerializerOptions#defaults()
      * @see MinecraftSerializerOptions#MinecraftSerializerOptions(dev.vankka.simpleast.core.parser.Parser, List, List, boolean)
      */
     @NotNull
     public Component serialize(@NotNull final String discordMessage, @NotNull final MinecraftSerializerOptions<Component> serializerOptions) {
-        List<Component> components = new ArrayList<>();
+        try {
+            return serializeWithinLimits(discordMessage, serializerOptions);
+        } catch (ParseLimitException ignored) {
+            return Component.text(discordMessage);
+        }
+    }
 
-        Parser<Object, Node<Object>, Object> parser = serializerOptions.getParser();
-        List<Node<Object>> nodes;
-        synchronized (parser) {
-            nodes = parser.parse(discordMessage, null, serializerOptions.getRules(), serializerOptions.isDebuggingEnabled());
+    /**
+     * Serializes the message like {@link #serialize(String, MinecraftSerializerOptions)},
+     * but throws instead of falling back to plain text so callers can tell the message wasn't parsed.
+     * @throws ParseLimitException if the message exceeds the parsing limits of the options
+     */
+    @NotNull
+    Component serializeWithinLimits(@NotNull final String discordMessage, @NotNull final MinecraftSerializerOptions<Component> serializerOptions) {
+        if (serializerOptions.isDiscordMarkdown() && isPlain(discordMessage)
+                && serializerOptions.getRenderers(TextNode.class).isEmpty()) {
+            // would be parsed into text nodes only, which the default renderer renders as a single text component
+            return Component.text(discordMessage);
         }
+        if (isVisitable(serializerOptions)) {
+            return visit(discordMessage, serializerOptions);
+        }
+
+        List<Node<Object>> nodes = serializerOptions.parse(discordMessage, null);
         nodes = flattenTextNodes(nodes); // reduce the amount of single character nodes caused by special characters
-        for (Node<Object> node : nodes) {
+
+        return render(nodes, serializerOptions);
+    }
+
+    /**
+     * Renders an already parsed abstract syntax tree to a Minecraft {@link Component},
+     * to the same components as {@link #serialize(String, MinecraftSerializerOptions)} would render the message to.
+     * The nodes are not modified, so the same tree can be rendered more than once, cached, or rendered from multiple threads.
+     * Adjacent text nodes are merged into one text component while rendering, like they are when serializing.
+     *
+     * @param nodes             the nodes, as parsed by {@link MinecraftSerializerOptions#parse(CharSequence, Object)}
+     * @param serializerOptions The options to use for this render
+     * @return the nodes rendered to a Minecraft TextComponent
+     */
+    @NotNull
+    public Component render(@NotNull final List<Node<Object>> nodes, @NotNull final MinecraftSerializerOptions<Component> serializerOptions) {
+        List<Node<Object>> merged = mergeTextNodes(nodes, null);
+        List<Component> components = new ArrayList<>(merged.size());
+        for (Node<Object> node : merged) {
             components.add(addChild(node, serializerOptions, null));
         }
 
@@ -132,6 +188,66 @@ public class MinecraftSerializer {
         return Component.empty().children(components);
     }
 
+    /**
+     * Renders a {@link CompactTree} to a Minecraft {@link Component}, to the same components as
+     * {@link #serialize(String, MinecraftSerializerOptions)} would render the message to.
+     * When nodes are only rendered by the {@link DefaultMinecraftRenderer}, the tree is rendered from the ranges of the message,
+     * only copying the text that ends up in the components. Otherwise, it is rendered from {@link CompactTree#toNodes()}.
+     *
+     * @param tree              the tree, as parsed by {@link DiscordMarkdownParser#parseCompact(CharSequence, Object)}
+     * @param serializerOptions The options to use for this render
+     * @return the tree rendered to a Minecraft TextComponent
+     */
+    @NotNull
+    public Component render(@NotNull final CompactTree tree, @NotNull final MinecraftSerializerOptions<Component> serializerOptions) {
+        if (!isRenderedByDefault(serializerOptions)) {
+            return render(tree.toNodes(), serializerOptions);
+        }
+
+        // the tree was parsed within the limits already
+        ComponentVisitor visitor = new ComponentVisitor(DefaultMinecraftRenderer.INSTANCE, 0);
+        tree.accept(visitor);
+        return visitor.build();
+    }
+
+    /**
+     * Checks if the message contains nothing that Discord markdown could start with.
+     */
+    private static boolean isPlain(String discordMessage) {
+        for (int i = 0; i < discordMessage.length(); i++) {
+            char character = discordMessage.charAt(i);
+            if (character < MARKDOWN_CHARACTERS.length
+                    && (MARKDOWN_CHARACTERS[character] || (character == 'h' && discordMessage.startsWith("ttp", i + 1)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * If the message can be rendered while {@link DiscordMarkdownParser} scans it instead of from a tree,
+     * which is the case when it's the parser and nodes are only rendered by the {@link DefaultMinecraftRenderer}.
+     */
+    private static boolean isVisitable(MinecraftSerializerOptions<Component> serializerOptions) {
+        return serializerOptions.getParser() instanceof DiscordMarkdownParser && isRenderedByDefault(serializerOptions);
+    }
+
+    private static boolean isRenderedByDefault(MinecraftSerializerOptions<Component> serializerOptions) {
+        return serializerOptions.getRenderers(StyleNode.class).isEmpty()
+                && serializerOptions.getRenderers(TextNode.class).isEmpty();
+    }
+
+    private Component visit(String discordMessage, MinecraftSerializerOptions<Component> serializerOptions) {
+        int maxInputLength = serializerOptions.getMaxInputLength();
+        if (maxInputLength > 0 && discordMessage.length() > maxInputLength) {
+            throw new ParseLimitException("Input is longer than " + maxInputLength + " characters");
+        }
+
+        ComponentVisitor visitor = new ComponentVisitor(DefaultMinecraftRenderer.INSTANCE, serializerOptions.getMaxNestingDepth());
+        ((DiscordMarkdownParser) serializerOptions.getParser()).parse(discordMessage, null, visitor);
+        return visitor.build();
+    }
+
     private Component addChild(
             Node<Object> node,
             MinecraftSerializerOptions<Component> serializerOptions,
@@ -140,11 +256,16 @@ public class MinecraftSerializer {
         if (component == null) {
             component = Component.empty();
         }
+        List<Node<Object>> children = mergeTextNodes(node.getChildren(), null);
+        if (children != node.getChildren() && node.getClass() == StyleNode.class) {
+            // renderers read the children too, like for the content of quotes, so they are given the merged children
+            node = withChildren((StyleNode<?, ?>) node, children);
+        }
         Function<Node<Object>, Component> renderWithChildren = otherNode -> addChild(otherNode, serializerOptions, null);
 
         Component output = null;
         NodeRenderer<Component> render = null;
-        for (NodeRenderer<Component> renderer : serializerOptions.getRenderers()) {
+        for (NodeRenderer<Component> renderer : serializerOptions.getRenderers(node.getClass())) {
             Component currentOutput = renderer.render(component, node, serializerOptions, renderWithChildren);
             if (currentOutput != null) {
                 output = currentOutput;
@@ -154,25 +275,21 @@ public class MinecraftSerializer {
         }
         if (output == null) {
             render = DefaultMinecraftRenderer.INSTANCE;
-            output = render.render(component, node, serializerOptions, renderWithChildren);
+            output = DefaultMinecraftRenderer.INSTANCE.render(component, node, serializerOptions, renderWithChildren);
             if (output == null) {
                 throw new IllegalStateException("DefaultMinecraftRenderer returned a null component");
             }
         }
 
-        Collection<Node<Object>> children = node.getChildren();
-        if (children != null) {
-            boolean first = true;
-            for (Node<Object> child : children) {
-                if (first && child instanceof TextNode) {
-                    // Apply text to the current component if it's the first child
-                    output = addChild(child, serializerOptions, output);
-                    first = false;
-                    continue;
-                }
-                first = false;
-
-                output = output.append(addChild(child, serializerOptions, null));
+        if (!children.isEmpty() && !isRenderedAsContent(node, render)) {
+            int index = 0;
+            if (children.get(0) instanceof TextNode) {
+                // Apply text to the current component if it's the first child
+                output = addChild(children.get(0), serializerOptions, output);
+                index++;
+            }
+            if (index < children.size()) {
+                output = appendChildren(output, children, index, serializerOptions);
             }
         }
 
@@ -184,42 +301,312 @@ public class MinecraftSerializer {
         return output;
     }
 
+    /**
+     * Creates a node with the same styles as the given node and the given children, without modifying the given node.
+     */
+    private static <T> StyleNode<Object, T> withChildren(StyleNode<?, T> node, List<Node<Object>> children) {
+        StyleNode<Object, T> copy = new StyleNode<>(node.getStyles());
+        for (Node<Object> child : children) {
+            copy.addChild(child);
+        }
+        return copy;
+    }
+
+    /**
+     * Appends the rendered children through a builder, so the children of the component are only copied once
+     * instead of once per child. A single child is appended directly, which copies them once as well.
+     */
+    private Component appendChildren(
+            Component component,
+            List<Node<Object>> children,
+            int fromIndex,
+            MinecraftSerializerOptions<Component> serializerOptions
+    ) {
+        if (fromIndex == children.size() - 1 || !(component instanceof BuildableComponent)) {
+            for (int i = fromIndex; i < children.size(); i++) {
+                component = component.append(addChild(children.get(i), serializerOptions, null));
+            }
+            return component;
+        }
+
+        ComponentBuilder<?, ?> builder = ((BuildableComponent<?, ?>) component).toBuilder();
+        for (int i = fromIndex; i < children.size(); i++) {
+            builder.append(addChild(children.get(i), serializerOptions, null));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Spoilers are rendered by {@link MinecraftRenderer} from their children, which are passed to it as the content
+     * of the spoiler. Quotes are as well, if the renderer {@link MinecraftRenderer#isQuoteContentRendered() opts in}.
+     */
+    private static boolean isRenderedAsContent(Node<Object> node, NodeRenderer<Component> render) {
+        if (!(node instanceof StyleNode) || !(render instanceof MinecraftRenderer)) {
+            return false;
+        }
+        for (Object style : ((StyleNode<?, ?>) node).getStyles()) {
+            if (style instanceof StyleNode.ContentStyle) {
+                StyleNode.ContentStyle.Type type = ((StyleNode.ContentStyle) style).getType();
+                if (type == StyleNode.ContentStyle.Type.SPOILER
+                        || (type == StyleNode.ContentStyle.Type.QUOTE && ((MinecraftRenderer) render).isQuoteContentRendered())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges adjacent {@link TextNode}s throughout the tree, in a single pass over it.
+     */
     @SuppressWarnings("unchecked")
     private <R, T extends Node<R>> List<T> flattenTextNodes(List<T> nodes) {
-        List<T> newNodes = new ArrayList<>();
-        TextNode<T> previousNode = null;
-        for (T node : nodes) {
-            List<Node<R>> children = node.getChildren();
-            if (!children.isEmpty()) {
-                if (previousNode != null) {
-                    newNodes.add((T) previousNode);
-                    previousNode = null;
-                }
+        Deque<Node<R>> parents = new ArrayDeque<>();
+        List<T> flattened = (List<T>) mergeTextNodes((List<Node<R>>) nodes, parents);
+        while (!parents.isEmpty()) {
+            List<Node<R>> children = parents.pop().getChildren();
+            List<Node<R>> merged = mergeTextNodes(children, parents);
+            if (merged != children) {
+                children.clear();
+                children.addAll(merged);
+            }
+        }
+        return flattened;
+    }
 
-                List<T> childNodes = flattenTextNodes((List<T>) children);
-                node.getChildren().clear();
-                node.getChildren().addAll(childNodes);
-                newNodes.add(node);
+    /**
+     * Merges runs of adjacent {@link TextNode}s into one node each, with one string per run.
+     * Nodes with children are added to {@code parents}, if it isn't {@code null}, so their children can be merged as well.
+     * @return the provided list if there was nothing to merge, otherwise a new list
+     */
+    private <R> List<Node<R>> mergeTextNodes(List<Node<R>> nodes, Deque<Node<R>> parents) {
+        List<Node<R>> merged = null;
+        int size = nodes.size();
+        int index = 0;
+        while (index < size) {
+            Node<R> node = nodes.get(index);
+            if (!isMergeable(node)) {
+                if (parents != null && !node.getChildren().isEmpty()) {
+                    parents.push(node);
+                }
+                if (merged != null) {
+                    merged.add(node);
+                }
+                index++;
                 continue;
             }
-            if (!(node instanceof TextNode)) {
-                if (previousNode != null) {
-                    newNodes.add((T) previousNode);
-                    previousNode = null;
+
+            int runEnd = index + 1;
+            while (runEnd < size && isMergeable(nodes.get(runEnd))) {
+                runEnd++;
+            }
+            if (runEnd - index == 1) {
+                if (merged != null) {
+                    merged.add(node);
                 }
-                newNodes.add(node);
+                index++;
                 continue;
             }
 
-            if (previousNode == null) {
-                previousNode = (TextNode<T>) node;
+            if (merged == null) {
+                merged = new ArrayList<>(nodes.subList(0, index));
+            }
+            StringBuilder content = new StringBuilder();
+            for (int i = index; i < runEnd; i++) {
+                content.append(((TextNode<R>) nodes.get(i)).getContent());
+            }
+            merged.add(new TextNode<>(content.toString()));
+            index = runEnd;
+        }
+        return merged != null ? merged : nodes;
+    }
+
+    private static boolean isMergeable(Node<?> node) {
+        return node instanceof TextNode && node.getChildren().isEmpty();
+    }
+
+    /**
+     * Renders the message as it's scanned, to the same components as rendering the parsed and flattened tree would.
+     */
+    private static final class ComponentVisitor implements DiscordMarkdownVisitor {
+
+        private final MinecraftRenderer renderer;
+        private final int maxNestingDepth;
+        private final Deque<Level> levels = new ArrayDeque<>();
+        private Level level = new Level(null);
+
+        // text is merged until something else comes, like adjacent text nodes are merged when flattening
+        private final StringBuilder text = new StringBuilder();
+
+        private ComponentVisitor(MinecraftRenderer renderer, int maxNestingDepth) {
+            this.renderer = renderer;
+            this.maxNestingDepth = maxNestingDepth;
+        }
+
+        @Override
+        public void onText(@NotNull String source, int start, int end) {
+            text.append(source, start, end);
+        }
+
+        @Override
+        public void onStyleStart(@NotNull CompactTree.Type style, @NotNull String source, int start, int end) {
+            flushText();
+            checkNestingDepth();
+
+            Component component;
+            switch (style) {
+                case BOLD:
+                    component = renderer.bold(Component.empty());
+                    break;
+                case UNDERLINE:
+                    component = renderer.underline(Component.empty());
+                    break;
+                case STRIKETHROUGH:
+                    component = renderer.strikethrough(Component.empty());
+                    break;
+                case ASTERISK_ITALICS:
+                case UNDERSCORE_ITALICS:
+                    component = renderer.italics(Component.empty());
+                    break;
+                default:
+                    // quotes and spoilers are rendered from their content when they end
+                    component = null;
+                    break;
+            }
+            levels.push(level);
+            level = new Level(component);
+        }
+
+        @Override
+        public void onStyleEnd(@NotNull CompactTree.Type style) {
+            flushText();
+            Level ended = level;
+            level = levels.pop();
+
+            Component component;
+            if (ended.component == null) {
+                TextComponent.Builder content = Component.text();
+                for (Component child : ended.children) {
+                    content.append(child);
+                }
+                component = style == CompactTree.Type.QUOTE
+                            ? renderer.appendQuote(Component.empty(), content.build())
+                            : renderer.appendSpoiler(Component.empty(), content.build());
             } else {
-                previousNode = new TextNode<>(previousNode.getContent() + ((TextNode<?>) node).getContent());
+                component = ended.component;
+                List<Component> children = ended.children;
+                if (children.size() == 1 || (!children.isEmpty() && !(component instanceof BuildableComponent))) {
+                    for (Component child : children) {
+                        component = component.append(child);
+                    }
+                } else if (!children.isEmpty()) {
+                    ComponentBuilder<?, ?> builder = ((BuildableComponent<?, ?>) component).toBuilder();
+                    for (Component child : children) {
+                        builder.append(child);
+                    }
+                    component = builder.build();
+                }
+            }
+            level.add(component);
+        }
+
+        @Override
+        public void onCodeString(@NotNull String source, int start, int end) {
+            flushText();
+            checkNestingDepth();
+            Component component = renderer.codeString(Component.empty());
+            level.add(((TextComponent) component).content(source.substring(start, end)));
+        }
+
+        @Override
+        public void onCodeBlock(@NotNull String source, int start, int end, int languageStart, int languageEnd) {
+            flushText();
+            checkNestingDepth();
+            String language = languageStart != -1 ? source.substring(languageStart, languageEnd) : null;
+            Component component = renderer.codeBlock(Component.empty(), language);
+            level.add(((TextComponent) component).content(source.substring(start, end)));
+        }
+
+        @Override
+        public void onLink(@NotNull String source, int start, int end) {
+            flushText();
+            level.add(renderer.appendLink(Component.empty(), source.substring(start, end)));
+        }
+
+        @Override
+        public void onMention(@NotNull CompactTree.Type type, @NotNull String source, int start, int end) {
+            flushText();
+            String id = source.substring(start, end);
+            switch (type) {
+                case USER_MENTION:
+                    level.add(renderer.appendUserMention(Component.empty(), id));
+                    break;
+                case CHANNEL_MENTION:
+                    level.add(renderer.appendChannelMention(Component.empty(), id));
+                    break;
+                case ROLE_MENTION:
+                    level.add(renderer.appendRoleMention(Component.empty(), id));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not a mention: " + type);
             }
         }
-        if (previousNode != null) {
-            newNodes.add((T) previousNode);
+
+        @Override
+        public void onEmoji(@NotNull String source, int nameStart, int nameEnd, int idStart, int idEnd) {
+            flushText();
+            String name = source.substring(nameStart, nameEnd);
+            level.add(renderer.appendEmoteMention(Component.empty(), name, source.substring(idStart, idEnd)));
+        }
+
+        private Component build() {
+            flushText();
+            List<Component> components = level.children;
+            if (components.size() == 1) {
+                return components.get(0);
+            }
+            return Component.empty().children(components);
+        }
+
+        private void flushText() {
+            if (text.length() == 0) {
+                return;
+            }
+            String content = text.toString();
+            text.setLength(0);
+
+            if (level.component != null && level.children.isEmpty() && !level.hasContent) {
+                // the first text of a style is the content of its component
+                level.component = ((TextComponent) level.component).content(content);
+                level.hasContent = true;
+            } else {
+                level.add(Component.text(content));
+            }
+        }
+
+        /**
+         * Nodes with children may only be as deep as {@link MinecraftSerializerOptions#getMaxNestingDepth()}, like when parsing.
+         */
+        private void checkNestingDepth() {
+            if (maxNestingDepth > 0 && levels.size() + 1 >= maxNestingDepth) {
+                throw new ParseLimitException("Input is nested deeper than " + maxNestingDepth + " levels");
+            }
+        }
+    }
+
+    private static final class Level {
+
+        private final List<Component> children = new ArrayList<>();
+        // null for the top level, quotes and spoilers
+        private Component component;
+        private boolean hasContent;
+
+        private Level(Component component) {
+            this.component = component;
+        }
+
+        private void add(Component child) {
+            children.add(child);
         }
-        return newNodes;
     }
 }
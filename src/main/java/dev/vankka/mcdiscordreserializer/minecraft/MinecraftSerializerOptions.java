@@ -20,7 +20,10 @@ package dev.vankka.mcdiscordreserializer.minecraft;
 
 import dev.vankka.mcdiscordreserializer.renderer.NodeRenderer;
 import dev.vankka.mcdiscordreserializer.renderer.implementation.DefaultMinecraftRenderer;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownParser;
 import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownRules;
+import dev.vankka.mcdiscordreserializer.rules.IndexedParser;
+import dev.vankka.mcdiscordreserializer.rules.ThreadSafeRule;
 import dev.vankka.simpleast.core.node.Node;
 import dev.vankka.simpleast.core.parser.Parser;
 import dev.vankka.simpleast.core.parser.Rule;
@@ -28,9 +31,16 @@ import net.kyori.adventure.text.Component;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Options for {@link MinecraftSerializer}s.
@@ -41,13 +51,28 @@ import java.util.List;
  */
 public class MinecraftSerializerOptions<O> {
 
+    /**
+     * The default maximum length of messages to parse, twice the length of the longest Discord message.
+     */
+    public static final int DEFAULT_MAX_INPUT_LENGTH = 8192;
+
+    /**
+     * The default maximum depth of the abstract syntax tree.
+     */
+    public static final int DEFAULT_MAX_NESTING_DEPTH = 64;
+
+    /**
+     * The rules of {@link #defaults()}, to compare rules to.
+     */
+    private static final List<Rule<Object, Node<Object>, Object>> DISCORD_RULES = DiscordMarkdownRules.createAllRulesForDiscord(true);
+
     /**
      * Creates the default {@link MinecraftSerializerOptions} for serialization.
      * @return the default {@link MinecraftSerializerOptions}.
      */
     public static MinecraftSerializerOptions<Component> defaults() {
         return new MinecraftSerializerOptions<>(
-                new Parser<>(),
+                new IndexedParser(),
                 DiscordMarkdownRules.createAllRulesForDiscord(true),
                 Collections.emptyList(),
                 false
@@ -73,21 +98,111 @@ public class MinecraftSerializerOptions<O> {
     @NotNull
     private final List<NodeRenderer<O>> renderers;
 
+    /**
+     * The renderers that may render each type of node, filled in as node types are encountered.
+     */
+    private final Map<Class<?>, List<NodeRenderer<O>>> renderersByNodeType = new ConcurrentHashMap<>();
+
     /**
      * Weather or not to use debug logging for the {@link Parser}.
      */
     private final boolean debuggingEnabled;
 
+    /**
+     * The maximum length of messages to parse, {@code 0} for no limit.
+     */
+    private final int maxInputLength;
+
+    /**
+     * The maximum depth of the abstract syntax tree, {@code 0} for no limit.
+     */
+    private final int maxNestingDepth;
+
+    /**
+     * The maximum time to spend parsing a message in nanoseconds, {@code 0} for no limit.
+     */
+    private final long parseTimeoutNanos;
+
+    /**
+     * If the {@link Parser} and all the {@link Rule Rules} can be used by multiple threads at the same time.
+     */
+    private final boolean concurrentParsing;
+
+    /**
+     * If only Discord markdown is parsed, see {@link #isDiscordMarkdown()}.
+     */
+    private final boolean discordMarkdown;
+
     public MinecraftSerializerOptions(
             @NotNull Parser<Object, Node<Object>, Object> parser,
             @Nullable List<Rule<Object, Node<Object>, Object>> rules,
             @NotNull List<NodeRenderer<O>> renderers,
             boolean debuggingEnabled
+    ) {
+        this(
+                parser,
+                rules,
+                renderers,
+                debuggingEnabled,
+                DEFAULT_MAX_INPUT_LENGTH,
+                DEFAULT_MAX_NESTING_DEPTH,
+                0
+        );
+    }
+
+    private MinecraftSerializerOptions(
+            @NotNull Parser<Object, Node<Object>, Object> parser,
+            @Nullable List<Rule<Object, Node<Object>, Object>> rules,
+            @NotNull List<NodeRenderer<O>> renderers,
+            boolean debuggingEnabled,
+            int maxInputLength,
+            int maxNestingDepth,
+            long parseTimeoutNanos
     ) {
         this.parser = parser;
-        this.rules = rules != null ? Collections.unmodifiableList(rules) : null;
+        // copied, so the rules can't change after what they allow has been worked out
+        this.rules = rules != null ? Collections.unmodifiableList(new ArrayList<>(rules)) : null;
         this.renderers = Collections.unmodifiableList(renderers);
         this.debuggingEnabled = debuggingEnabled;
+        this.maxInputLength = maxInputLength;
+        this.maxNestingDepth = maxNestingDepth;
+        this.parseTimeoutNanos = parseTimeoutNanos;
+        this.concurrentParsing = isThreadSafe(parser, this.rules);
+        this.discordMarkdown = isDiscordMarkdown(parser, this.rules);
+    }
+
+    private static boolean isThreadSafe(Parser<Object, Node<Object>, Object> parser, List<Rule<Object, Node<Object>, Object>> rules) {
+        if (parser instanceof DiscordMarkdownParser) {
+            return true;
+        }
+        // the parser's own rules may still change, and subclasses may keep state between parses
+        if (rules == null || (parser.getClass() != Parser.class && !(parser instanceof IndexedParser))) {
+            return false;
+        }
+        for (Rule<Object, Node<Object>, Object> rule : rules) {
+            if (!(rule instanceof ThreadSafeRule)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDiscordMarkdown(Parser<Object, Node<Object>, Object> parser, List<Rule<Object, Node<Object>, Object>> rules) {
+        if (parser instanceof DiscordMarkdownParser) {
+            return true;
+        }
+        if (rules == null || (parser.getClass() != Parser.class && !(parser instanceof IndexedParser)) || rules.size() != DISCORD_RULES.size()) {
+            return false;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            // each kind of rule has its own class, or its own pattern when they share one
+            Rule<Object, Node<Object>, Object> rule = rules.get(i);
+            Rule<Object, Node<Object>, Object> discordRule = DISCORD_RULES.get(i);
+            if (rule.getClass() != discordRule.getClass() || rule.getMatcher().pattern() != discordRule.getMatcher().pattern()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -101,11 +216,162 @@ public class MinecraftSerializerOptions<O> {
     /**
      * Creates a new instance of {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions}
      * based on this instance with parser set to the provided value.
+     * Use {@link DiscordMarkdownParser} to parse without going through the rules.
      * @param parser a parser for parsing a string into abstract syntax tree
      * @return the new instance
      */
     public MinecraftSerializerOptions<O> withParser(@NotNull Parser<Object, Node<Object>, Object> parser) {
-        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled);
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
+    }
+
+    /**
+     * If messages can be parsed with these options from multiple threads at the same time without locking the parser,
+     * which is the case when the parser is a {@link DiscordMarkdownParser},
+     * or a plain {@link Parser} or {@link IndexedParser} and all the rules are {@link ThreadSafeRule ThreadSafeRules}.
+     * @return true if parsing does not lock the parser
+     */
+    public boolean isConcurrentParsing() {
+        return concurrentParsing;
+    }
+
+    /**
+     * If only Discord markdown is parsed with these options, which is the case when the parser is a {@link DiscordMarkdownParser},
+     * or a plain {@link Parser} or {@link IndexedParser} with the rules from {@link DiscordMarkdownRules#createAllRulesForDiscord(boolean)}
+     * including the text rule. Messages without any markdown are then parsed into a single text node.
+     * @return true if only Discord markdown is parsed
+     */
+    public boolean isDiscordMarkdown() {
+        return discordMarkdown;
+    }
+
+    /**
+     * Parses the provided content into an abstract syntax tree using the parser and rules of these options.
+     * The parser is only locked while parsing if {@link #isConcurrentParsing()} is false.
+     * @param content the content to parse
+     * @param state the initial state for the parser, may be {@code null}
+     * @return the parsed nodes
+     * @throws ParseLimitException if the content is too long, too deeply nested or takes too long to parse
+     */
+    @NotNull
+    public List<Node<Object>> parse(@NotNull CharSequence content, @Nullable Object state) {
+        if (maxInputLength > 0 && content.length() > maxInputLength) {
+            throw new ParseLimitException("Input is longer than " + maxInputLength + " characters");
+        }
+        List<Node<Object>> nodes;
+        if (concurrentParsing) {
+            nodes = parseWithinTimeout(content, state);
+        } else {
+            synchronized (parser) {
+                // the time spent waiting for the lock doesn't count towards the timeout
+                nodes = parseWithinTimeout(content, state);
+            }
+        }
+
+        if (maxNestingDepth > 0) {
+            checkNestingDepth(nodes);
+        }
+        return nodes;
+    }
+
+    private List<Node<Object>> parseWithinTimeout(CharSequence content, Object state) {
+        CharSequence source = content;
+        if (parseTimeoutNanos > 0) {
+            source = new DeadlineCharSequence(content.toString(), new Deadline(System.nanoTime() + parseTimeoutNanos));
+        }
+        return parser.parse(source, state, rules, debuggingEnabled);
+    }
+
+    private void checkNestingDepth(List<Node<Object>> nodes) {
+        Deque<Iterator<Node<Object>>> path = new ArrayDeque<>();
+        path.push(nodes.iterator());
+        while (!path.isEmpty()) {
+            Iterator<Node<Object>> siblings = path.peek();
+            if (!siblings.hasNext()) {
+                path.pop();
+                continue;
+            }
+            List<Node<Object>> children = siblings.next().getChildren();
+            if (!children.isEmpty()) {
+                if (path.size() >= maxNestingDepth) {
+                    throw new ParseLimitException("Input is nested deeper than " + maxNestingDepth + " levels");
+                }
+                path.push(children.iterator());
+            }
+        }
+    }
+
+    /**
+     * Gets the maximum length of messages that will be parsed, longer messages are serialized as plain text.
+     * @return the maximum length or {@code 0} if there is no limit
+     */
+    public int getMaxInputLength() {
+        return maxInputLength;
+    }
+
+    /**
+     * Creates a new instance of {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions}
+     * based on this instance with the maximum input length set to the provided value.
+     * @param maxInputLength the maximum length of messages to parse or {@code 0} for no limit
+     * @return the new instance
+     * @see #DEFAULT_MAX_INPUT_LENGTH
+     */
+    public MinecraftSerializerOptions<O> withMaxInputLength(int maxInputLength) {
+        if (maxInputLength < 0) {
+            throw new IllegalArgumentException("maxInputLength cannot be negative");
+        }
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
+    }
+
+    /**
+     * Gets the maximum depth of the abstract syntax tree, counting the text at the bottom,
+     * messages that are nested deeper are serialized as plain text.
+     * @return the maximum depth or {@code 0} if there is no limit
+     */
+    public int getMaxNestingDepth() {
+        return maxNestingDepth;
+    }
+
+    /**
+     * Creates a new instance of {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions}
+     * based on this instance with the maximum nesting depth set to the provided value.
+     * @param maxNestingDepth the maximum depth of the abstract syntax tree or {@code 0} for no limit
+     * @return the new instance
+     * @see #DEFAULT_MAX_NESTING_DEPTH
+     */
+    public MinecraftSerializerOptions<O> withMaxNestingDepth(int maxNestingDepth) {
+        if (maxNestingDepth < 0) {
+            throw new IllegalArgumentException("maxNestingDepth cannot be negative");
+        }
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
+    }
+
+    /**
+     * Gets the maximum time to spend parsing a message, messages that take longer are serialized as plain text.
+     * @param unit the unit to get the timeout in
+     * @return the timeout or {@code 0} if there is no limit
+     */
+    public long getParseTimeout(@NotNull TimeUnit unit) {
+        return unit.convert(parseTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new instance of {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions}
+     * based on this instance with the parse timeout set to the provided value.
+     * <p>
+     * The timeout is checked while the rules read the message, so it does not apply to parsers that copy the message
+     * before reading it like {@link DiscordMarkdownParser}, which doesn't backtrack.
+     * There is no timeout by default, as a pause of the whole process (like garbage collection) also counts towards it,
+     * which would make ordinary messages fall back to plain text. Time spent waiting to lock the parser doesn't count.
+     * </p>
+     * @param timeout the maximum time to spend parsing a message or {@code 0} for no limit
+     * @param unit the unit of the timeout
+     * @return the new instance
+     */
+    public MinecraftSerializerOptions<O> withParseTimeout(long timeout, @NotNull TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout cannot be negative");
+        }
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, unit.toNanos(timeout));
     }
 
     /**
@@ -119,11 +385,12 @@ public class MinecraftSerializerOptions<O> {
     /**
      * Creates a new instance of {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions}
      * based on this instance with parser set to the provided value.
+     * The rules are copied, so changing the list afterwards doesn't change the options.
      * @param rules the rules for creating the abstract syntax tree
      * @return the new instance
      */
     public MinecraftSerializerOptions<O> withRules(@NotNull List<Rule<Object, Node<Object>, Object>> rules) {
-        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled);
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
     }
 
     /**
@@ -146,7 +413,7 @@ public class MinecraftSerializerOptions<O> {
         }
         List<NodeRenderer<O>> renderers = new ArrayList<>(this.renderers);
         renderers.add(renderer);
-        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled);
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
     }
 
     /**
@@ -170,7 +437,7 @@ public class MinecraftSerializerOptions<O> {
         }
         List<NodeRenderer<O>> renderers = new ArrayList<>(this.renderers);
         renderers.add(index, renderer);
-        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled);
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
     }
 
     /**
@@ -187,7 +454,7 @@ public class MinecraftSerializerOptions<O> {
         }
         List<NodeRenderer<O>> renderers = new ArrayList<>(this.renderers);
         renderers.remove(renderer);
-        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled);
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
     }
 
     /**
@@ -199,12 +466,49 @@ public class MinecraftSerializerOptions<O> {
         return renderers;
     }
 
+    /**
+     * Returns the renderers that may render nodes of the given type, based on {@link NodeRenderer#getNodeTypes()}.
+     * The result is computed once per node type for this options instance.
+     * @param nodeType the type of node
+     * @return the ordered unmodifiable list of renderers, empty if only the default renderer applies
+     */
+    @NotNull
+    public List<NodeRenderer<O>> getRenderers(@NotNull Class<?> nodeType) {
+        List<NodeRenderer<O>> nodeRenderers = renderersByNodeType.get(nodeType);
+        if (nodeRenderers == null) {
+            nodeRenderers = findRenderers(nodeType);
+            renderersByNodeType.put(nodeType, nodeRenderers);
+        }
+        return nodeRenderers;
+    }
+
+    private List<NodeRenderer<O>> findRenderers(Class<?> nodeType) {
+        List<NodeRenderer<O>> nodeRenderers = new ArrayList<>();
+        for (NodeRenderer<O> renderer : renderers) {
+            Collection<Class<?>> nodeTypes = renderer.getNodeTypes();
+            if (nodeTypes == null) {
+                nodeRenderers.add(renderer);
+                continue;
+            }
+            for (Class<?> type : nodeTypes) {
+                if (type.isAssignableFrom(nodeType)) {
+                    nodeRenderers.add(renderer);
+                    break;
+                }
+            }
+        }
+        if (nodeRenderers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return nodeRenderers.size() == renderers.size() ? renderers : Collections.unmodifiableList(nodeRenderers);
+    }
+
     public boolean isDebuggingEnabled() {
         return debuggingEnabled;
     }
 
     public MinecraftSerializerOptions<O> withDebuggingEnabled(boolean debuggingEnabled) {
-        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled);
+        return new MinecraftSerializerOptions<>(parser, rules, renderers, debuggingEnabled, maxInputLength, maxNestingDepth, parseTimeoutNanos);
     }
 
     @Override
@@ -214,6 +518,73 @@ public class MinecraftSerializerOptions<O> {
                 ", rules=" + rules +
                 ", renderers=" + renderers +
                 ", debuggingEnabled=" + debuggingEnabled +
+                ", maxInputLength=" + maxInputLength +
+                ", maxNestingDepth=" + maxNestingDepth +
+                ", parseTimeoutNanos=" + parseTimeoutNanos +
                 '}';
     }
+
+    private static final class Deadline {
+
+        private final long time;
+        private int reads;
+
+        private Deadline(long time) {
+            this.time = time;
+        }
+
+        private void check() {
+            // System.nanoTime is comparatively expensive, the regex engine reads characters in tight loops
+            if ((++reads & 1023) == 0 && System.nanoTime() - time > 0) {
+                throw new ParseLimitException("Parsing took too long");
+            }
+        }
+    }
+
+    /**
+     * A view of the message being parsed, that stops parsing once the deadline is reached.
+     * Sub sequences share the deadline and don't copy the message.
+     */
+    private static final class DeadlineCharSequence implements CharSequence {
+
+        private final String source;
+        private final int start;
+        private final int end;
+        private final Deadline deadline;
+
+        private DeadlineCharSequence(String source, Deadline deadline) {
+            this(source, 0, source.length(), deadline);
+        }
+
+        private DeadlineCharSequence(String source, int start, int end, Deadline deadline) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            deadline.check();
+            return source.charAt(start + index);
+        }
+
+        @Override
+        public @NotNull CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+            }
+            return new DeadlineCharSequence(source, this.start + start, this.start + end, deadline);
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return source.substring(start, end);
+        }
+    }
 }
@@ -0,0 +1,36 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.minecraft;
+
+/**
+ * Thrown when parsing exceeds one of the limits of the {@link MinecraftSerializerOptions}.
+ * {@link MinecraftSerializer} falls back to plain text when this happens.
+ *
+ * @see MinecraftSerializerOptions#withMaxInputLength(int)
+ * @see MinecraftSerializerOptions#withMaxNestingDepth(int)
+ * @see MinecraftSerializerOptions#withParseTimeout(long, java.util.concurrent.TimeUnit)
+ */
+public class ParseLimitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ParseLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.plain;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes mentions and emojis for the {@link PlainTextSerializer}.
+ * By default they are written the same way as the
+ * {@link dev.vankka.mcdiscordreserializer.renderer.implementation.DefaultMinecraftRenderer} renders them.
+ */
+public interface PlainTextResolver {
+
+    /**
+     * The resolver that writes everything the default way.
+     */
+    PlainTextResolver DEFAULT = new PlainTextResolver() {};
+
+    /**
+     * Appends a custom emoji.
+     *
+     * @param builder the builder to append to
+     * @param name the name of the emoji
+     * @param id the id of the emoji
+     */
+    default void appendEmoteMention(@NotNull StringBuilder builder, @NotNull String name, @NotNull String id) {
+        builder.append(':').append(name).append(':');
+    }
+
+    /**
+     * Appends a channel mention.
+     *
+     * @param builder the builder to append to
+     * @param id the id of the channel
+     */
+    default void appendChannelMention(@NotNull StringBuilder builder, @NotNull String id) {
+        builder.append("<#").append(id).append('>');
+    }
+
+    /**
+     * Appends a user mention.
+     *
+     * @param builder the builder to append to
+     * @param id the id of the user
+     */
+    default void appendUserMention(@NotNull StringBuilder builder, @NotNull String id) {
+        builder.append("<@").append(id).append('>');
+    }
+
+    /**
+     * Appends a role mention.
+     *
+     * @param builder the builder to append to
+     * @param id the id of the role
+     */
+    default void appendRoleMention(@NotNull StringBuilder builder, @NotNull String id) {
+        builder.append("<@&").append(id).append('>');
+    }
+}
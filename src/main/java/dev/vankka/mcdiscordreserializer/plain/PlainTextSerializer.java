@@ -0,0 +1,184 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.plain;
+
+import dev.vankka.mcdiscordreserializer.rules.CompactTree;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownParser;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownVisitor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * PlainTextSerializer, for stripping the formatting from Discord messages.
+ * <p>
+ * The message is written to a {@link StringBuilder} while {@link DiscordMarkdownParser} scans it,
+ * without building an abstract syntax tree or {@link net.kyori.adventure.text.Component}s.
+ * Markers are removed, escaped characters are unescaped, code and links are kept as they are
+ * and mentions and emojis are written by a {@link PlainTextResolver}.
+ * Quotes are written without their {@code > } markers.
+ * </p>
+ * <p>
+ * This serializer holds no state between serializations, so a single instance may be used from multiple threads.
+ * </p>
+ *
+ * @see PlainTextResolver
+ */
+public class PlainTextSerializer {
+
+    /**
+     * Default instance of the PlainTextSerializer, using {@link PlainTextResolver#DEFAULT}.
+     */
+    @NotNull
+    public static final PlainTextSerializer INSTANCE = new PlainTextSerializer();
+
+    private static final DiscordMarkdownParser PARSER = new DiscordMarkdownParser();
+
+    @NotNull
+    private final PlainTextResolver resolver;
+
+    /**
+     * Constructor for creating a serializer, with {@link PlainTextResolver#DEFAULT} as the resolver.
+     */
+    public PlainTextSerializer() {
+        this(PlainTextResolver.DEFAULT);
+    }
+
+    /**
+     * Constructor for creating a serializer.
+     *
+     * @param resolver the resolver for mentions and emojis
+     */
+    public PlainTextSerializer(@NotNull PlainTextResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    public @NotNull PlainTextResolver getResolver() {
+        return resolver;
+    }
+
+    /**
+     * Strips the formatting from a Discord message.
+     *
+     * @param discordMessage a Discord markdown message
+     * @return the message as plain text
+     */
+    @NotNull
+    public String serialize(@NotNull String discordMessage) {
+        StringBuilder builder = new StringBuilder(discordMessage.length());
+        serialize(discordMessage, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Strips the formatting from a Discord message, appending the plain text to the provided builder.
+     *
+     * @param discordMessage a Discord markdown message
+     * @param builder the builder to append the plain text to
+     */
+    public void serialize(@NotNull String discordMessage, @NotNull StringBuilder builder) {
+        PARSER.parse(discordMessage, null, new StrippingVisitor(builder, resolver));
+    }
+
+    private static final class StrippingVisitor implements DiscordMarkdownVisitor {
+
+        private final StringBuilder builder;
+        private final PlainTextResolver resolver;
+
+        // the lines of a quote after the first one still start with their marker
+        private int quotes;
+
+        private StrippingVisitor(StringBuilder builder, PlainTextResolver resolver) {
+            this.builder = builder;
+            this.resolver = resolver;
+        }
+
+        @Override
+        public void onText(@NotNull String source, int start, int end) {
+            append(source, start, end);
+        }
+
+        @Override
+        public void onStyleStart(@NotNull CompactTree.Type style, @NotNull String source, int start, int end) {
+            if (style == CompactTree.Type.QUOTE) {
+                quotes++;
+            }
+        }
+
+        @Override
+        public void onStyleEnd(@NotNull CompactTree.Type style) {
+            if (style == CompactTree.Type.QUOTE) {
+                quotes--;
+            }
+        }
+
+        @Override
+        public void onCodeString(@NotNull String source, int start, int end) {
+            append(source, start, end);
+        }
+
+        @Override
+        public void onCodeBlock(@NotNull String source, int start, int end, int languageStart, int languageEnd) {
+            append(source, start, end);
+        }
+
+        @Override
+        public void onLink(@NotNull String source, int start, int end) {
+            builder.append(source, start, end);
+        }
+
+        @Override
+        public void onMention(@NotNull CompactTree.Type type, @NotNull String source, int start, int end) {
+            String id = source.substring(start, end);
+            switch (type) {
+                case USER_MENTION:
+                    resolver.appendUserMention(builder, id);
+                    break;
+                case CHANNEL_MENTION:
+                    resolver.appendChannelMention(builder, id);
+                    break;
+                case ROLE_MENTION:
+                    resolver.appendRoleMention(builder, id);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not a mention: " + type);
+            }
+        }
+
+        @Override
+        public void onEmoji(@NotNull String source, int nameStart, int nameEnd, int idStart, int idEnd) {
+            resolver.appendEmoteMention(builder, source.substring(nameStart, nameEnd), source.substring(idStart, idEnd));
+        }
+
+        private void append(String source, int start, int end) {
+            if (quotes == 0) {
+                builder.append(source, start, end);
+                return;
+            }
+
+            int index = start;
+            for (int i = start; i + 3 <= end; i++) {
+                if (source.charAt(i) == '\n' && source.charAt(i + 1) == '>' && source.charAt(i + 2) == ' ') {
+                    builder.append(source, index, i + 1);
+                    index = i + 3;
+                    i += 2;
+                }
+            }
+            builder.append(source, index, end);
+        }
+    }
+}
@@ -19,17 +19,14 @@
 package dev.vankka.mcdiscordreserializer.renderer;
 
 import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions;
-import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownRules;
 import dev.vankka.mcdiscordreserializer.rules.StyleNode;
 import dev.vankka.simpleast.core.node.Node;
 import dev.vankka.simpleast.core.node.TextNode;
-import dev.vankka.simpleast.core.parser.Parser;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
@@ -47,8 +44,10 @@ public interface MinecraftRenderer extends MinecraftNodeRenderer {
         if (node instanceof TextNode) {
             component = ((TextComponent) component).content(((TextNode<?>) node).getContent());
         } else if (node instanceof StyleNode) {
-            List<StyleNode.Style> styles = new ArrayList<>(((StyleNode<?, StyleNode.Style>) node).getStyles());
-            for (StyleNode.Style style : styles) {
+            // the node is only read, so the same tree can be rendered more than once
+            List<StyleNode.Style> styles = ((StyleNode<?, StyleNode.Style>) node).getStyles();
+            for (int i = 0; i < styles.size(); i++) {
+                StyleNode.Style style = styles.get(i);
                 if (style instanceof StyleNode.MentionStyle) {
                     StyleNode.MentionStyle mentionStyle = (StyleNode.MentionStyle) style;
                     String id = mentionStyle.getId();
@@ -72,7 +71,6 @@ public interface MinecraftRenderer extends MinecraftNodeRenderer {
                 } else if (style instanceof StyleNode.CodeBlockStyle) {
                     StyleNode.CodeBlockStyle codeBlockStyle = (StyleNode.CodeBlockStyle) style;
                     component = codeBlock(component, codeBlockStyle.getLanguage());
-                    ((StyleNode<?, StyleNode.Style>) node).getStyles().remove(style);
                 } else if (style instanceof StyleNode.ContentStyle) {
                     StyleNode.ContentStyle contentStyle = (StyleNode.ContentStyle) style;
                     switch (contentStyle.getType()) {
@@ -81,43 +79,23 @@ public interface MinecraftRenderer extends MinecraftNodeRenderer {
                             break;
                         }
                         case QUOTE: {
-                            TextComponent content = Component.empty();
-
-                            Parser<Object, Node<Object>, Object> parser = serializerOptions.getParser();
-                            List<Node<Object>> nodes;
-                            synchronized (parser) {
-                                nodes = parser.parse(
-                                        contentStyle.getContent(),
-                                        new DiscordMarkdownRules.QuoteState(true),
-                                        serializerOptions.getRules(),
-                                        serializerOptions.isDebuggingEnabled()
-                                );
-                            }
-                            for (Node<Object> objectNode : nodes) {
-                                content = content.append(renderWithChildren.apply(objectNode));
+                            // the content was parsed as the children of this node
+                            TextComponent.Builder content = Component.text();
+                            for (Node<Object> child : node.getChildren()) {
+                                content.append(renderWithChildren.apply(child));
                             }
 
-                            component = appendQuote(component, content);
+                            component = appendQuote(component, content.build());
                             break;
                         }
                         case SPOILER: {
-                            TextComponent content = Component.empty();
-
-                            Parser<Object, Node<Object>, Object> parser = serializerOptions.getParser();
-                            List<Node<Object>> nodes;
-                            synchronized (parser) {
-                                nodes = parser.parse(
-                                        contentStyle.getContent(),
-                                        null,
-                                        serializerOptions.getRules(),
-                                        serializerOptions.isDebuggingEnabled()
-                                );
-                            }
-                            for (Node<Object> objectNode : nodes) {
-                                content = content.append(renderWithChildren.apply(objectNode));
+                            // the content was parsed as the children of this node, the serializer leaves them to us
+                            TextComponent.Builder content = Component.text();
+                            for (Node<Object> child : node.getChildren()) {
+                                content.append(renderWithChildren.apply(child));
                             }
 
-                            component = appendSpoiler(component, content);
+                            component = appendSpoiler(component, content.build());
                             break;
                         }
                     }
@@ -127,7 +105,6 @@ public interface MinecraftRenderer extends MinecraftNodeRenderer {
                     switch ((StyleNode.Styles) style) {
                         case CODE_STRING: {
                             component = codeString(component);
-                            ((StyleNode<?, StyleNode.Style>) node).getStyles().remove(style);
                             break;
                         }
                         case BOLD: {
@@ -248,6 +225,7 @@ public interface MinecraftRenderer extends MinecraftNodeRenderer {
 
     /**
      * Renders the spoiler and appends it to the provided {@link Component}.
+     * The content is the only place the body of the spoiler appears, the children of the spoiler node are not appended.
      *
      * @param component the {@link Component} to render the spoiler to
      * @param content   the content of the spoiler
@@ -258,6 +236,8 @@ public interface MinecraftRenderer extends MinecraftNodeRenderer {
 
     /**
      * Adds the required formatting for quotes to the provided {@link Component}.
+     * Unless {@link #isQuoteContentRendered()} is overridden to return {@code true}, the rendered children of the quote
+     * are appended to the returned {@link Component} afterwards, so the content should not be appended here as well.
      *
      * @param component the {@link Component} to render to
      * @param content   the content of the quote
@@ -266,6 +246,16 @@ public interface MinecraftRenderer extends MinecraftNodeRenderer {
     @Nullable
     Component appendQuote(@NotNull Component component, @NotNull Component content);
 
+    /**
+     * If {@link #appendQuote(Component, Component)} renders the body of quotes from the content it is given,
+     * in which case the children of the quote node are not appended to the quote afterwards.
+     *
+     * @return {@code true} if the content is the only place the body of quotes appears, {@code false} by default
+     */
+    default boolean isQuoteContentRendered() {
+        return false;
+    }
+
     /**
      * Renders a emote mention and appends it to the provided {@link Component}.
      *
@@ -23,6 +23,7 @@ import dev.vankka.simpleast.core.node.Node;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
 import java.util.function.Function;
 
 /**
@@ -64,4 +65,18 @@ public interface NodeRenderer<O> {
                                   @NotNull Function<Node<Object>, O> renderWithChildren) {
         return null;
     }
+
+    /**
+     * Gets the types of {@link dev.vankka.simpleast.core.node.Node}s this renderer renders,
+     * nodes of other types are not passed to this renderer.
+     * Declaring the types lets {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions}
+     * skip this renderer for other nodes without calling it.
+     *
+     * @return the node types (including subclasses) or {@code null} if this renderer may render any node
+     * @see dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions#getRenderers(Class)
+     */
+    @Nullable
+    default Collection<Class<?>> getNodeTypes() {
+        return null;
+    }
 }
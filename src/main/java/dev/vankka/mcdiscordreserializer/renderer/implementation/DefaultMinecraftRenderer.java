@@ -39,13 +39,25 @@ public class DefaultMinecraftRenderer implements MinecraftRenderer {
      */
     public static final DefaultMinecraftRenderer INSTANCE = new DefaultMinecraftRenderer();
 
-    private static final Pattern PATTERN_NEWLINE = Pattern.compile("\n");
+    private static final Pattern PATTERN_QUOTE_LINE = Pattern.compile("\n> ");
+
+    private final boolean quoteContentRendered;
 
     /**
      * Creates a new instance of the {@link dev.vankka.mcdiscordreserializer.renderer.implementation.DefaultMinecraftRenderer} unless you're extending the class you shouldn't use this.
      * @see #INSTANCE
      */
     public DefaultMinecraftRenderer() {
+        this.quoteContentRendered = isAppendQuoteInherited(getClass());
+    }
+
+    private static boolean isAppendQuoteInherited(Class<?> rendererClass) {
+        try {
+            return rendererClass.getMethod("appendQuote", Component.class, Component.class).getDeclaringClass()
+                    == DefaultMinecraftRenderer.class;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
@@ -97,13 +109,24 @@ public class DefaultMinecraftRenderer implements MinecraftRenderer {
     }
 
     private static final Component QUOTE_PREFIX = Component.text("| ", NamedTextColor.DARK_GRAY, TextDecoration.BOLD);
+    // the content of a quote keeps the "> " of every line except the first
     private static final TextReplacementConfig QUOTE_REPLACEMENT = TextReplacementConfig.builder()
-            .match(PATTERN_NEWLINE).replacement(builder -> builder.append(QUOTE_PREFIX)).build();
+            .match(PATTERN_QUOTE_LINE).replacement(builder -> builder.content("\n").append(QUOTE_PREFIX)).build();
 
     @Override
     @NotNull
     public Component appendQuote(@NotNull Component component, @NotNull Component content) {
-        return Component.empty().append(QUOTE_PREFIX).append(component.replaceText(QUOTE_REPLACEMENT));
+        return Component.empty().append(QUOTE_PREFIX).append(component).append(content.replaceText(QUOTE_REPLACEMENT));
+    }
+
+    /**
+     * {@inheritDoc}
+     * This is only the case when {@link #appendQuote(Component, Component)} isn't overridden,
+     * subclasses that override it keep having the children of the quote appended.
+     */
+    @Override
+    public boolean isQuoteContentRendered() {
+        return quoteContentRendered;
     }
 
     @Override
@@ -0,0 +1,436 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.rules;
+
+import dev.vankka.simpleast.core.node.Node;
+import dev.vankka.simpleast.core.node.TextNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact abstract syntax tree for a Discord message, as parsed by {@link DiscordMarkdownParser#parseCompact(CharSequence, Object)}.
+ * <p>
+ * Nodes are stored in parallel arrays in the order they appear in the message (parents before their children),
+ * each node is a type and a range of the message. No text is copied out of the message until it is asked for,
+ * {@link #accept(DiscordMarkdownVisitor)} passes the tree to a visitor as ranges of the message,
+ * which is how {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer#render(CompactTree, dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions)}
+ * renders it, only copying the text that ends up in the rendered components.
+ * {@link #toNodes()} creates the regular tree instead, copying all of the text up front.
+ * </p>
+ * <p>
+ * Text that is next to each other in the message is stored as a single node,
+ * the tree cannot be modified so it can be shared between threads.
+ * </p>
+ */
+public final class CompactTree {
+
+    /**
+     * The type of a node, with the range of the message that it covers.
+     */
+    public enum Type {
+        /**
+         * Text, the range is the text.
+         */
+        TEXT,
+        /**
+         * Bold, the range is the content.
+         */
+        BOLD,
+        /**
+         * Underline, the range is the content.
+         */
+        UNDERLINE,
+        /**
+         * Strikethrough, the range is the content.
+         */
+        STRIKETHROUGH,
+        /**
+         * Italics surrounded by asterisks, the range is the content.
+         */
+        ASTERISK_ITALICS,
+        /**
+         * Italics surrounded by underscores, the range is the content.
+         */
+        UNDERSCORE_ITALICS,
+        /**
+         * A quote, the range is the content including the {@code > } of every line except the first.
+         */
+        QUOTE,
+        /**
+         * A spoiler, the range is the content.
+         */
+        SPOILER,
+        /**
+         * A code string, the range is the code.
+         */
+        CODE_STRING,
+        /**
+         * A code block, the range is the code, see {@link #getLanguage(int)} for the language.
+         */
+        CODE_BLOCK,
+        /**
+         * A link, the range is the link.
+         */
+        LINK,
+        /**
+         * A custom emoji, the range is the name, see {@link #getEmojiId(int)} for the id.
+         */
+        EMOJI,
+        /**
+         * A user mention, the range is the id.
+         */
+        USER_MENTION,
+        /**
+         * A channel mention, the range is the id.
+         */
+        CHANNEL_MENTION,
+        /**
+         * A role mention, the range is the id.
+         */
+        ROLE_MENTION
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final int[] EMPTY = new int[0];
+
+    private final String source;
+    private int size;
+    private byte[] types;
+    private int[] starts;
+    private int[] ends;
+    private int[] parents;
+    private int[] descendantEnds;
+    // the second range of emojis and code blocks, only allocated when there is one
+    private int[] extraStarts = EMPTY;
+    private int[] extraEnds = EMPTY;
+
+    // text is merged with the previous node, if that is text directly before it
+    private final boolean mergeText;
+
+    CompactTree(String source, boolean mergeText) {
+        this.source = source;
+        this.mergeText = mergeText;
+        int capacity = Math.max(4, source.length() / 8);
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.parents = new int[capacity];
+    }
+
+    int add(int parent, Type type, int start, int end) {
+        if (mergeText && type == Type.TEXT && size > 0) {
+            int previous = size - 1;
+            if (types[previous] == Type.TEXT.ordinal() && parents[previous] == parent && ends[previous] == start) {
+                ends[previous] = end;
+                return previous;
+            }
+        }
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        parents[size] = parent;
+        return size++;
+    }
+
+    int add(int parent, Type type, int start, int end, int extraStart, int extraEnd) {
+        int node = add(parent, type, start, end);
+        if (extraStarts.length <= node) {
+            int capacity = types.length;
+            int filled = extraStarts.length;
+            extraStarts = Arrays.copyOf(extraStarts, capacity);
+            extraEnds = Arrays.copyOf(extraEnds, capacity);
+            Arrays.fill(extraStarts, filled, capacity, -1);
+            Arrays.fill(extraEnds, filled, capacity, -1);
+        }
+        extraStarts[node] = extraStart;
+        extraEnds[node] = extraEnd;
+        return node;
+    }
+
+    /**
+     * Trims the arrays to the amount of nodes and works out where the descendants of each node end.
+     */
+    CompactTree finish() {
+        types = Arrays.copyOf(types, size);
+        starts = Arrays.copyOf(starts, size);
+        ends = Arrays.copyOf(ends, size);
+        parents = Arrays.copyOf(parents, size);
+        if (extraStarts.length > size) {
+            extraStarts = Arrays.copyOf(extraStarts, size);
+            extraEnds = Arrays.copyOf(extraEnds, size);
+        }
+
+        descendantEnds = new int[size];
+        for (int node = size - 1; node >= 0; node--) {
+            // descendants come after their parent, so they have been processed already
+            descendantEnds[node] = Math.max(descendantEnds[node], node + 1);
+            int parent = parents[node];
+            if (parent >= 0) {
+                descendantEnds[parent] = Math.max(descendantEnds[parent], descendantEnds[node]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets the message this tree was parsed from.
+     * @return the message
+     */
+    @NotNull
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the amount of nodes in this tree, nodes are numbered from {@code 0} to {@code size() - 1}.
+     * @return the amount of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the type of the node.
+     * @param node the node
+     * @return the type
+     */
+    @NotNull
+    public Type getType(int node) {
+        return TYPES[types[node]];
+    }
+
+    /**
+     * Gets the start of the range of the message this node covers.
+     * @param node the node
+     * @return the index of the first character
+     * @see Type
+     */
+    public int getStart(int node) {
+        return starts[node];
+    }
+
+    /**
+     * Gets the end of the range of the message this node covers.
+     * @param node the node
+     * @return the index after the last character
+     * @see Type
+     */
+    public int getEnd(int node) {
+        return ends[node];
+    }
+
+    /**
+     * Gets the text of the range this node covers, this copies the text out of the message.
+     * @param node the node
+     * @return the text
+     */
+    @NotNull
+    public String getText(int node) {
+        return source.substring(starts[node], ends[node]);
+    }
+
+    /**
+     * Gets the language of a {@link Type#CODE_BLOCK}.
+     * @param node the node
+     * @return the language or {@code null} if the code block doesn't specify one
+     */
+    @Nullable
+    public String getLanguage(int node) {
+        return getExtraText(node);
+    }
+
+    /**
+     * Gets the id of an {@link Type#EMOJI}.
+     * @param node the node
+     * @return the id of the emoji
+     */
+    @Nullable
+    public String getEmojiId(int node) {
+        return getExtraText(node);
+    }
+
+    private String getExtraText(int node) {
+        if (node >= extraStarts.length || extraStarts[node] == -1) {
+            return null;
+        }
+        return source.substring(extraStarts[node], extraEnds[node]);
+    }
+
+    /**
+     * Gets the parent of the node.
+     * @param node the node
+     * @return the parent or {@code -1} if the node is at the top level
+     */
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * Gets the first child of the node.
+     * @param node the node
+     * @return the first child or {@code -1} if the node has no children
+     */
+    public int getFirstChild(int node) {
+        return node + 1 < descendantEnds[node] ? node + 1 : -1;
+    }
+
+    /**
+     * Gets the next node with the same parent.
+     * @param node the node
+     * @return the next sibling or {@code -1} if this is the last child of its parent
+     */
+    public int getNextSibling(int node) {
+        int next = descendantEnds[node];
+        return next < size && parents[next] == parents[node] ? next : -1;
+    }
+
+    /**
+     * Passes the nodes of this tree to the visitor in order, the same way
+     * {@link DiscordMarkdownParser#parse(CharSequence, Object, DiscordMarkdownVisitor)} would for the message.
+     * @param visitor the visitor to pass the nodes to
+     */
+    public void accept(@NotNull DiscordMarkdownVisitor visitor) {
+        int[] open = new int[8];
+        int depth = 0;
+        for (int node = 0; node < size; node++) {
+            while (depth > 0 && node >= descendantEnds[open[depth - 1]]) {
+                visitor.onStyleEnd(TYPES[types[open[--depth]]]);
+            }
+
+            Type type = TYPES[types[node]];
+            int start = starts[node];
+            int end = ends[node];
+            switch (type) {
+                case TEXT:
+                    visitor.onText(source, start, end);
+                    break;
+                case CODE_STRING:
+                    visitor.onCodeString(source, start, end);
+                    break;
+                case CODE_BLOCK:
+                    boolean extra = node < extraStarts.length;
+                    visitor.onCodeBlock(source, start, end, extra ? extraStarts[node] : -1, extra ? extraEnds[node] : -1);
+                    break;
+                case LINK:
+                    visitor.onLink(source, start, end);
+                    break;
+                case EMOJI:
+                    visitor.onEmoji(source, start, end, extraStarts[node], extraEnds[node]);
+                    break;
+                case USER_MENTION:
+                case CHANNEL_MENTION:
+                case ROLE_MENTION:
+                    visitor.onMention(type, source, start, end);
+                    break;
+                default:
+                    // a style with content, which ends after its descendants
+                    visitor.onStyleStart(type, source, start, end);
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, depth * 2);
+                    }
+                    open[depth++] = node;
+                    break;
+            }
+        }
+        while (depth > 0) {
+            visitor.onStyleEnd(TYPES[types[open[--depth]]]);
+        }
+    }
+
+    /**
+     * Creates the regular abstract syntax tree for this tree, copying all the text it needs out of the message.
+     * @return the top level nodes
+     */
+    @NotNull
+    public List<Node<Object>> toNodes() {
+        List<Node<Object>> roots = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        Node<Object>[] nodes = (Node<Object>[]) new Node<?>[size];
+        for (int index = 0; index < size; index++) {
+            boolean extra = index < extraStarts.length;
+            Node<Object> node = createNode(
+                    source, TYPES[types[index]], starts[index], ends[index],
+                    extra ? extraStarts[index] : -1, extra ? extraEnds[index] : -1
+            );
+            nodes[index] = node;
+
+            int parent = parents[index];
+            if (parent == -1) {
+                roots.add(node);
+            } else {
+                nodes[parent].addChild(node);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Creates the node for a range of the source, the extra range is {@code -1} if the node doesn't have one.
+     */
+    static Node<Object> createNode(String source, Type type, int start, int end, int extraStart, int extraEnd) {
+        switch (type) {
+            case TEXT:
+                return new TextNode<>(source.substring(start, end));
+            case BOLD:
+                return StyleNode.of(StyleNode.Styles.BOLD);
+            case UNDERLINE:
+                return StyleNode.of(StyleNode.Styles.UNDERLINE);
+            case STRIKETHROUGH:
+                return StyleNode.of(StyleNode.Styles.STRIKETHROUGH);
+            case ASTERISK_ITALICS:
+                return StyleNode.of(new StyleNode.ItalicStyle(true));
+            case UNDERSCORE_ITALICS:
+                return StyleNode.of(new StyleNode.ItalicStyle(false));
+            case QUOTE:
+                String quote = source.substring(start, end).trim().replace("\n> ", "\n");
+                return StyleNode.of(new StyleNode.ContentStyle(StyleNode.ContentStyle.Type.QUOTE, quote));
+            case SPOILER:
+                return StyleNode.of(new StyleNode.ContentStyle(StyleNode.ContentStyle.Type.SPOILER, source.substring(start, end)));
+            case CODE_STRING:
+                return StyleNode.createWithText(source.substring(start, end), StyleNode.Styles.CODE_STRING);
+            case CODE_BLOCK:
+                String language = extraStart != -1 ? source.substring(extraStart, extraEnd) : null;
+                return StyleNode.createWithText(source.substring(start, end), new StyleNode.CodeBlockStyle(language));
+            case LINK:
+                return StyleNode.of(new StyleNode.ContentStyle(StyleNode.ContentStyle.Type.LINK, source.substring(start, end)));
+            case EMOJI:
+                String id = source.substring(extraStart, extraEnd);
+                return StyleNode.of(new StyleNode.EmojiStyle(id, source.substring(start, end)));
+            case USER_MENTION:
+                return StyleNode.of(new StyleNode.MentionStyle(StyleNode.MentionStyle.Type.USER, source.substring(start, end)));
+            case CHANNEL_MENTION:
+                return StyleNode.of(new StyleNode.MentionStyle(StyleNode.MentionStyle.Type.CHANNEL, source.substring(start, end)));
+            case ROLE_MENTION:
+                return StyleNode.of(new StyleNode.MentionStyle(StyleNode.MentionStyle.Type.ROLE, source.substring(start, end)));
+            default:
+                throw new IllegalStateException("Unknown node type " + type);
+        }
+    }
+}
@@ -0,0 +1,785 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.rules;
+
+import dev.vankka.simpleast.core.node.Node;
+import dev.vankka.simpleast.core.parser.Parser;
+import dev.vankka.simpleast.core.parser.Rule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link Parser} for Discord markdown that scans the input character by character instead of trying every
+ * {@link Rule} at every position.
+ * <p>
+ * Produces the same tree as {@link DiscordMarkdownRules#createAllRulesForDiscord(boolean)} (including the text rule)
+ * would with a regular {@link Parser}, the rules passed to {@link #parse(CharSequence, Object, List, boolean)} are ignored.
+ * This parser holds no state between parses, so a single instance may be used from multiple threads.
+ * </p>
+ *
+ * @see dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions#withParser(Parser)
+ */
+public final class DiscordMarkdownParser extends Parser<Object, Node<Object>, Object> {
+
+    // used for the word boundary after italics for non-ascii characters, as it's definition depends on the Java version
+    private static final Pattern UNDERSCORE_WORD_BOUNDARY = Pattern.compile("_\\b");
+
+    @Override
+    public List<Node<Object>> parse(CharSequence source, Object state, List<Rule<Object, Node<Object>, Object>> rules, boolean enableDebugging) {
+        Node<Object> root = new Node<Object>() {};
+        if (source == null || source.length() == 0) {
+            return root.getChildren();
+        }
+
+        new Lexer(source.toString(), null, root, null).parse(state);
+        return root.getChildren();
+    }
+
+    /**
+     * Parses the source into a {@link CompactTree}, which only keeps the ranges of the source that make up each node
+     * instead of copying them out of the source.
+     * @param source the source to parse
+     * @param state the initial state, may be {@code null}
+     * @return the tree, with text that is next to each other in the source merged into a single node
+     */
+    @NotNull
+    public CompactTree parseCompact(@NotNull CharSequence source, @Nullable Object state) {
+        String string = source.toString();
+        CompactTree tree = new CompactTree(string, true);
+        new Lexer(string, tree, null, null).parse(state);
+        return tree.finish();
+    }
+
+    /**
+     * Parses the source, passing its contents to the visitor as they are found instead of building a tree.
+     * @param source the source to parse
+     * @param state the initial state, may be {@code null}
+     * @param visitor the visitor to pass the contents of the source to
+     */
+    public void parse(@NotNull CharSequence source, @Nullable Object state, @NotNull DiscordMarkdownVisitor visitor) {
+        new Lexer(source.toString(), null, null, visitor).parse(state);
+    }
+
+    private static final class Frame {
+
+        private final int parent;
+        private final CompactTree.Type type;
+        private final Object state;
+        private final int end;
+        private int position;
+
+        private Frame(int parent, CompactTree.Type type, Object state, int position, int end) {
+            this.parent = parent;
+            this.type = type;
+            this.state = state;
+            this.position = position;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Matches the rules in the same order as {@link DiscordMarkdownRules#createAllRulesForDiscord(boolean)},
+     * each match method returns the end of the match or {@code -1} and mirrors the pattern of the rule it replaces.
+     */
+    private static final class Lexer {
+
+        private final String source;
+
+        // matches are either added to the tree, passed to the visitor, or added as nodes to their parent
+        private final CompactTree tree;
+        private final DiscordMarkdownVisitor visitor;
+        private final Node<Object> root;
+        private final List<Node<Object>> parents;
+
+        // text that hasn't been passed to the visitor yet, so text that is next to each other is passed at once
+        private int textStart = -1;
+        private int textEnd = -1;
+
+        // groups of the last match, the second group is -1 when the match doesn't have one
+        private int groupStart;
+        private int groupEnd;
+        private int secondGroupStart;
+        private int secondGroupEnd;
+
+        // the run of word characters last looked at by the text rule, so long words are only scanned once
+        private int wordStart = -1;
+        private int wordEnd = -1;
+        private int wordLimit = -1;
+        private boolean wordFollowedByColon;
+
+        private Lexer(String source, CompactTree tree, Node<Object> root, DiscordMarkdownVisitor visitor) {
+            this.source = source;
+            this.tree = tree;
+            this.visitor = visitor;
+            this.root = root;
+            this.parents = root != null ? new ArrayList<>() : null;
+        }
+
+        private void parse(Object state) {
+            Deque<Frame> frames = new ArrayDeque<>();
+            Frame frame = new Frame(-1, null, state, 0, source.length());
+            while (frame != null) {
+                while (frame.position < frame.end) {
+                    Frame child = next(frame);
+                    if (child != null) {
+                        // the visitor is told when the parent ends, so it's kept even if it has no content left
+                        if (frame.position < frame.end || visitor != null) {
+                            frames.push(frame);
+                        }
+                        frame = child;
+                    }
+                }
+                if (visitor != null) {
+                    flushText();
+                    if (frame.type != null) {
+                        visitor.onStyleEnd(frame.type);
+                    }
+                }
+                frame = frames.poll();
+            }
+        }
+
+        /**
+         * Matches the next node of the frame, adds it to the tree and advances the frame.
+         * @return the frame for the content of the node, if it has content that needs to be parsed
+         */
+        private Frame next(Frame frame) {
+            int position = frame.position;
+            int end = frame.end;
+            Object state = frame.state;
+
+            CompactTree.Type type = null;
+            boolean nonterminal = false;
+            Object childState = state;
+            int matchEnd = -1;
+            switch (source.charAt(position)) {
+                case '\\':
+                    if ((matchEnd = matchEscape(position, end)) != -1) {
+                        type = CompactTree.Type.TEXT;
+                        groupStart = position + 1;
+                        groupEnd = matchEnd;
+                    }
+                    break;
+                case 'h':
+                    if ((matchEnd = matchLink(position, end)) != -1) {
+                        type = CompactTree.Type.LINK;
+                        groupStart = position;
+                        groupEnd = matchEnd;
+                    }
+                    break;
+                case '\n':
+                    matchEnd = matchNewline(position, end);
+                    type = CompactTree.Type.TEXT;
+                    groupStart = matchEnd - 1;
+                    groupEnd = matchEnd;
+                    break;
+                case '*':
+                    if ((matchEnd = matchBold(position, end)) != -1) {
+                        type = CompactTree.Type.BOLD;
+                        nonterminal = true;
+                    } else if ((matchEnd = matchAsteriskItalics(position, end)) != -1) {
+                        type = CompactTree.Type.ASTERISK_ITALICS;
+                        nonterminal = true;
+                    }
+                    break;
+                case '_':
+                    if ((matchEnd = matchUnderline(position, end)) != -1) {
+                        type = CompactTree.Type.UNDERLINE;
+                        nonterminal = true;
+                    } else if ((matchEnd = matchUnderscoreItalics(position, end)) != -1) {
+                        type = CompactTree.Type.UNDERSCORE_ITALICS;
+                        nonterminal = true;
+                    }
+                    break;
+                case '~':
+                    if ((matchEnd = matchStrikethrough(position, end)) != -1) {
+                        type = CompactTree.Type.STRIKETHROUGH;
+                        nonterminal = true;
+                    }
+                    break;
+                case '>':
+                    if (!(state instanceof DiscordMarkdownRules.QuoteState && ((DiscordMarkdownRules.QuoteState) state).isInQuote())
+                            && (matchEnd = matchQuote(position, end)) != -1) {
+                        childState = state instanceof DiscordMarkdownRules.QuoteState
+                                     ? ((DiscordMarkdownRules.QuoteState) state).newQuoteState(true)
+                                     : new DiscordMarkdownRules.QuoteState(true);
+                        type = CompactTree.Type.QUOTE;
+                        nonterminal = true;
+                    }
+                    break;
+                case '|':
+                    if ((matchEnd = matchSpoiler(position, end)) != -1) {
+                        type = CompactTree.Type.SPOILER;
+                        nonterminal = true;
+                    }
+                    break;
+                case '`':
+                    if ((matchEnd = matchCodeBlock(position, end)) != -1) {
+                        type = CompactTree.Type.CODE_BLOCK;
+                    } else if ((matchEnd = matchCodeString(position, end)) != -1) {
+                        type = CompactTree.Type.CODE_STRING;
+                    }
+                    break;
+                case '<':
+                    if ((matchEnd = matchEmoteMention(position, end)) != -1) {
+                        type = CompactTree.Type.EMOJI;
+                    } else if ((matchEnd = matchMention(position, end)) != -1) {
+                        switch (source.charAt(position + 1)) {
+                            case '#':
+                                type = CompactTree.Type.CHANNEL_MENTION;
+                                break;
+                            case '@':
+                                type = source.charAt(position + 2) == '&'
+                                       ? CompactTree.Type.ROLE_MENTION
+                                       : CompactTree.Type.USER_MENTION;
+                                break;
+                            default:
+                                throw new IllegalStateException("Unexpected mention at " + position);
+                        }
+                    }
+                    break;
+            }
+            if (type == null) {
+                matchEnd = matchText(position, end);
+                type = CompactTree.Type.TEXT;
+                groupStart = position;
+                groupEnd = matchEnd;
+            }
+
+            int node = add(frame.parent, type, nonterminal);
+            frame.position = matchEnd;
+
+            return nonterminal ? new Frame(node, type, childState, groupStart, groupEnd) : null;
+        }
+
+        private int add(int parent, CompactTree.Type type, boolean nonterminal) {
+            boolean secondGroup = type == CompactTree.Type.CODE_BLOCK || type == CompactTree.Type.EMOJI;
+            if (visitor != null) {
+                visit(type, nonterminal);
+                return -1;
+            }
+            if (tree != null) {
+                return secondGroup
+                       ? tree.add(parent, type, groupStart, groupEnd, secondGroupStart, secondGroupEnd)
+                       : tree.add(parent, type, groupStart, groupEnd);
+            }
+
+            Node<Object> node = CompactTree.createNode(
+                    source, type, groupStart, groupEnd,
+                    secondGroup ? secondGroupStart : -1, secondGroup ? secondGroupEnd : -1
+            );
+            (parent == -1 ? root : parents.get(parent)).addChild(node);
+            if (!nonterminal) {
+                return -1;
+            }
+            parents.add(node);
+            return parents.size() - 1;
+        }
+
+        private void visit(CompactTree.Type type, boolean nonterminal) {
+            if (type == CompactTree.Type.TEXT) {
+                if (textEnd != groupStart) {
+                    flushText();
+                    textStart = groupStart;
+                }
+                textEnd = groupEnd;
+                return;
+            }
+            flushText();
+            if (nonterminal) {
+                visitor.onStyleStart(type, source, groupStart, groupEnd);
+                return;
+            }
+            switch (type) {
+                case CODE_STRING:
+                    visitor.onCodeString(source, groupStart, groupEnd);
+                    break;
+                case CODE_BLOCK:
+                    visitor.onCodeBlock(source, groupStart, groupEnd, secondGroupStart, secondGroupEnd);
+                    break;
+                case LINK:
+                    visitor.onLink(source, groupStart, groupEnd);
+                    break;
+                case EMOJI:
+                    visitor.onEmoji(source, groupStart, groupEnd, secondGroupStart, secondGroupEnd);
+                    break;
+                default:
+                    visitor.onMention(type, source, groupStart, groupEnd);
+                    break;
+            }
+        }
+
+        private void flushText() {
+            if (textStart != -1) {
+                visitor.onText(source, textStart, textEnd);
+                textStart = -1;
+                textEnd = -1;
+            }
+        }
+
+        // ^\\([^0-9A-Za-z\s])
+        private int matchEscape(int position, int end) {
+            int index = position + 1;
+            if (index >= end || isAsciiLetterOrDigit(source.charAt(index)) || isWhitespace(source.charAt(index))) {
+                return -1;
+            }
+            return nextCodePoint(index, end);
+        }
+
+        // ^(https?://[^ ]+\.[^ ]+)
+        private int matchLink(int position, int end) {
+            int index = position + 4;
+            if (index > end || !source.startsWith("http", position)) {
+                return -1;
+            }
+            if (index < end && source.charAt(index) == 's') {
+                index++;
+            }
+            if (index + 3 > end || !source.startsWith("://", index)) {
+                return -1;
+            }
+            index += 3;
+
+            int runEnd = index;
+            int lastDot = -1;
+            while (runEnd < end && source.charAt(runEnd) != ' ') {
+                if (source.charAt(runEnd) == '.') {
+                    lastDot = runEnd;
+                }
+                runEnd++;
+            }
+            // the dot needs at least one character before and after it
+            if (lastDot == runEnd - 1) {
+                lastDot = source.lastIndexOf('.', runEnd - 2);
+            }
+            if (lastDot <= index) {
+                return -1;
+            }
+            return runEnd;
+        }
+
+        // ^(?:\n *)*\n
+        private int matchNewline(int position, int end) {
+            int index = position;
+            int lastNewline = position;
+            while (index < end && source.charAt(index) == '\n') {
+                lastNewline = index++;
+                while (index < end && source.charAt(index) == ' ') {
+                    index++;
+                }
+            }
+            return lastNewline + 1;
+        }
+
+        // ^\*\*(.+?)\*\*(?!\*)
+        private int matchBold(int position, int end) {
+            return matchDelimited(position, end, '*', true);
+        }
+
+        // ^__(.+?)__(?!_)
+        private int matchUnderline(int position, int end) {
+            return matchDelimited(position, end, '_', true);
+        }
+
+        // ^~~(.+?)~~
+        private int matchStrikethrough(int position, int end) {
+            return matchDelimited(position, end, '~', false);
+        }
+
+        // ^\|\|(.+?)\|\|
+        private int matchSpoiler(int position, int end) {
+            return matchDelimited(position, end, '|', false);
+        }
+
+        private int matchDelimited(int position, int end, char delimiter, boolean notFollowedByDelimiter) {
+            if (position + 1 >= end || source.charAt(position + 1) != delimiter) {
+                return -1;
+            }
+            int contentEnd = matchLine(position + 2, end, delimiter, 2, notFollowedByDelimiter);
+            if (contentEnd == -1) {
+                return -1;
+            }
+            groupStart = position + 2;
+            groupEnd = contentEnd;
+            return contentEnd + 2;
+        }
+
+        /**
+         * Mirrors {@code (.+?)} followed by the delimiter repeated the given amount of times.
+         * @return the end of the content or {@code -1}
+         */
+        private int matchLine(int start, int end, char delimiter, int count, boolean notFollowedByDelimiter) {
+            if (start >= end || isLineTerminator(source.charAt(start))) {
+                return -1;
+            }
+            int index = nextCodePoint(start, end);
+            while (true) {
+                if (isRepeated(index, end, delimiter, count)
+                        && (!notFollowedByDelimiter || index + count >= end || source.charAt(index + count) != delimiter)) {
+                    return index;
+                }
+                if (index >= end || isLineTerminator(source.charAt(index))) {
+                    return -1;
+                }
+                index = nextCodePoint(index, end);
+            }
+        }
+
+        // ^\*(?=\S)((?:\*\*|[^\s*]\s{0,2})+?)\*(?!\*)
+        private int matchAsteriskItalics(int position, int end) {
+            int index = position + 1;
+            if (index >= end || isWhitespace(source.charAt(index))) {
+                return -1;
+            }
+            boolean first = true;
+            while (true) {
+                if (!first && index < end && source.charAt(index) == '*'
+                        && (index + 1 >= end || source.charAt(index + 1) != '*')) {
+                    groupStart = position + 1;
+                    groupEnd = index;
+                    return index + 1;
+                }
+                first = false;
+                if (index >= end) {
+                    return -1;
+                }
+
+                char character = source.charAt(index);
+                if (character == '*') {
+                    if (index + 1 >= end || source.charAt(index + 1) != '*') {
+                        return -1;
+                    }
+                    index += 2;
+                } else if (!isWhitespace(character)) {
+                    index = nextCodePoint(index, end);
+                    for (int i = 0; i < 2 && index < end && isWhitespace(source.charAt(index)); i++) {
+                        index++;
+                    }
+                } else {
+                    return -1;
+                }
+            }
+        }
+
+        // ^\b_((?:__|\\[\s\S]|[^\\_])+?)_\b
+        private int matchUnderscoreItalics(int position, int end) {
+            int index = position + 1;
+            boolean first = true;
+            while (true) {
+                if (!first && index < end && source.charAt(index) == '_' && isWordBoundaryAfterUnderscore(index + 1, end)) {
+                    groupStart = position + 1;
+                    groupEnd = index;
+                    return index + 1;
+                }
+                first = false;
+                if (index >= end) {
+                    return -1;
+                }
+
+                char character = source.charAt(index);
+                if (character == '_') {
+                    if (index + 1 >= end || source.charAt(index + 1) != '_') {
+                        return -1;
+                    }
+                    index += 2;
+                } else if (character == '\\') {
+                    if (index + 1 >= end) {
+                        return -1;
+                    }
+                    index = nextCodePoint(index + 1, end);
+                } else {
+                    index = nextCodePoint(index, end);
+                }
+            }
+        }
+
+        private boolean isWordBoundaryAfterUnderscore(int index, int end) {
+            if (index >= end) {
+                return true;
+            }
+            char character = source.charAt(index);
+            if (character < 128) {
+                return !isWordCharacter(character);
+            }
+            String next = source.substring(index, nextCodePoint(index, end));
+            return UNDERSCORE_WORD_BOUNDARY.matcher("_" + next).lookingAt();
+        }
+
+        // ^> (.+(?:\n> .+)*) with DOTALL, which always matches until the end
+        private int matchQuote(int position, int end) {
+            if (position + 2 >= end || source.charAt(position + 1) != ' ') {
+                return -1;
+            }
+            groupStart = position + 2;
+            groupEnd = end;
+            return end;
+        }
+
+        // ^```(?:(\S+?)\n)?\n*(.+?)\n*```
+        private int matchCodeBlock(int position, int end) {
+            if (!isRepeated(position, end, '`', 3)) {
+                return -1;
+            }
+            int start = position + 3;
+
+            int languageEnd = start;
+            while (languageEnd < end && !isWhitespace(source.charAt(languageEnd))) {
+                languageEnd++;
+            }
+            if (languageEnd > start && languageEnd < end && source.charAt(languageEnd) == '\n') {
+                int matchEnd = matchCodeBlockContent(languageEnd + 1, end);
+                if (matchEnd != -1) {
+                    secondGroupStart = start;
+                    secondGroupEnd = languageEnd;
+                    return matchEnd;
+                }
+            }
+
+            int matchEnd = matchCodeBlockContent(start, end);
+            if (matchEnd != -1) {
+                secondGroupStart = -1;
+                secondGroupEnd = -1;
+            }
+            return matchEnd;
+        }
+
+        private int matchCodeBlockContent(int start, int end) {
+            int contentStart = skipNewlines(start, end);
+            if (contentStart >= end || isLineTerminator(source.charAt(contentStart))) {
+                return -1;
+            }
+            int index = nextCodePoint(contentStart, end);
+            while (true) {
+                int closing = skipNewlines(index, end);
+                if (isRepeated(closing, end, '`', 3)) {
+                    groupStart = contentStart;
+                    groupEnd = index;
+                    return closing + 3;
+                }
+                if (index >= end || isLineTerminator(source.charAt(index))) {
+                    return -1;
+                }
+                index = nextCodePoint(index, end);
+            }
+        }
+
+        // ^(?:`{2}(.+?)`{2}|`(.+?)`)
+        private int matchCodeString(int position, int end) {
+            if (position + 1 < end && source.charAt(position + 1) == '`') {
+                int contentEnd = matchLine(position + 2, end, '`', 2, false);
+                if (contentEnd != -1) {
+                    groupStart = position + 2;
+                    groupEnd = contentEnd;
+                    return contentEnd + 2;
+                }
+            }
+            int contentEnd = matchLine(position + 1, end, '`', 1, false);
+            if (contentEnd == -1) {
+                return -1;
+            }
+            groupStart = position + 1;
+            groupEnd = contentEnd;
+            return contentEnd + 1;
+        }
+
+        // ^<a?:(\w+):(\d+)>
+        private int matchEmoteMention(int position, int end) {
+            int index = position + 1;
+            if (index < end && source.charAt(index) == 'a') {
+                index++;
+            }
+            if (index >= end || source.charAt(index) != ':') {
+                return -1;
+            }
+            int nameStart = ++index;
+            while (index < end && isWordCharacter(source.charAt(index))) {
+                index++;
+            }
+            if (index == nameStart || index >= end || source.charAt(index) != ':') {
+                return -1;
+            }
+            int nameEnd = index++;
+            int idEnd = skipDigits(index, end);
+            if (idEnd == index || idEnd >= end || source.charAt(idEnd) != '>') {
+                return -1;
+            }
+            groupStart = nameStart;
+            groupEnd = nameEnd;
+            secondGroupStart = index;
+            secondGroupEnd = idEnd;
+            return idEnd + 1;
+        }
+
+        // ^<#(\d+)>, ^<@!?(\d+)> and ^<@&(\d+)>
+        private int matchMention(int position, int end) {
+            int index = position + 1;
+            if (index >= end) {
+                return -1;
+            }
+            char type = source.charAt(index++);
+            if (type == '@' && index < end && (source.charAt(index) == '!' || source.charAt(index) == '&')) {
+                index++;
+            } else if (type != '#' && type != '@') {
+                return -1;
+            }
+            int idEnd = skipDigits(index, end);
+            if (idEnd == index || idEnd >= end || source.charAt(idEnd) != '>') {
+                return -1;
+            }
+            groupStart = index;
+            groupEnd = idEnd;
+            return idEnd + 1;
+        }
+
+        // ^[\s\S]+?(?=[^0-9A-Za-z\s\\u00c0-\\uffff>]|\n| {2,}\n|\w+:\S|$)
+        private int matchText(int position, int end) {
+            int index = nextCodePoint(position, end);
+            while (!isEndOfInput(index, end)) {
+                char character = source.charAt(index);
+                if (character == ' ') {
+                    int spacesEnd = index;
+                    while (spacesEnd < end && source.charAt(spacesEnd) == ' ') {
+                        spacesEnd++;
+                    }
+                    if (spacesEnd - index >= 2 && spacesEnd < end && source.charAt(spacesEnd) == '\n') {
+                        break;
+                    }
+                    // none of the following spaces can end the text either
+                    index = spacesEnd;
+                    continue;
+                }
+                if (character == '\n' || !isTextCharacter(codePointAt(index, end))) {
+                    break;
+                }
+                if (isWordCharacter(character) && isWordFollowedByColon(index, end)) {
+                    break;
+                }
+                index = nextCodePoint(index, end);
+            }
+            return index;
+        }
+
+        // $ without MULTILINE, which also matches before a line terminator at the end of the input
+        private boolean isEndOfInput(int index, int end) {
+            if (index >= end) {
+                return true;
+            }
+            if (index == end - 2) {
+                return source.charAt(index) == '\r' && source.charAt(index + 1) == '\n';
+            }
+            if (index == end - 1) {
+                char character = source.charAt(index);
+                if (character == '\n') {
+                    // not between \r and \n, the text rule always matches at least one character before the index
+                    return source.charAt(index - 1) != '\r';
+                }
+                return isLineTerminator(character);
+            }
+            return false;
+        }
+
+        private boolean isWordFollowedByColon(int index, int end) {
+            if (index < wordStart || index >= wordEnd || end != wordLimit) {
+                int wordEnd = index;
+                while (wordEnd < end && isWordCharacter(source.charAt(wordEnd))) {
+                    wordEnd++;
+                }
+                this.wordStart = index;
+                this.wordEnd = wordEnd;
+                this.wordLimit = end;
+                this.wordFollowedByColon = wordEnd + 1 < end
+                        && source.charAt(wordEnd) == ':'
+                        && !isWhitespace(source.charAt(wordEnd + 1));
+            }
+            return wordFollowedByColon;
+        }
+
+        private boolean isRepeated(int index, int end, char character, int count) {
+            if (index + count > end) {
+                return false;
+            }
+            for (int i = index; i < index + count; i++) {
+                if (source.charAt(i) != character) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int skipNewlines(int index, int end) {
+            while (index < end && source.charAt(index) == '\n') {
+                index++;
+            }
+            return index;
+        }
+
+        private int skipDigits(int index, int end) {
+            while (index < end && source.charAt(index) >= '0' && source.charAt(index) <= '9') {
+                index++;
+            }
+            return index;
+        }
+
+        private int nextCodePoint(int index, int end) {
+            if (Character.isHighSurrogate(source.charAt(index)) && index + 1 < end && Character.isLowSurrogate(source.charAt(index + 1))) {
+                return index + 2;
+            }
+            return index + 1;
+        }
+
+        private int codePointAt(int index, int end) {
+            if (nextCodePoint(index, end) == index + 2) {
+                return Character.toCodePoint(source.charAt(index), source.charAt(index + 1));
+            }
+            return source.charAt(index);
+        }
+    }
+
+    // characters not ending the text rule: [0-9A-Za-z\s\\u00c0-\\uffff>]
+    private static boolean isTextCharacter(int codePoint) {
+        return (codePoint < 128 && (isAsciiLetterOrDigit((char) codePoint) || isWhitespace((char) codePoint)))
+                || (codePoint >= 0x00C0 && codePoint <= 0xFFFF)
+                || codePoint == '>';
+    }
+
+    // \w
+    private static boolean isWordCharacter(char character) {
+        return isAsciiLetterOrDigit(character) || character == '_';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char character) {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z') || (character >= '0' && character <= '9');
+    }
+
+    // \s
+    private static boolean isWhitespace(char character) {
+        return character == ' ' || character == '\t' || character == '\n' || character == 0x0B || character == '\f' || character == '\r';
+    }
+
+    // characters not matched by . without DOTALL
+    private static boolean isLineTerminator(char character) {
+        return character == '\n' || character == '\r' || character == '\u0085' || character == '\u2028' || character == '\u2029';
+    }
+}
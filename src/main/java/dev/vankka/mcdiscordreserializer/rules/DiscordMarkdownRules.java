@@ -23,7 +23,6 @@ import dev.vankka.simpleast.core.node.TextNode;
 import dev.vankka.simpleast.core.parser.ParseSpec;
 import dev.vankka.simpleast.core.parser.Parser;
 import dev.vankka.simpleast.core.parser.Rule;
-import dev.vankka.simpleast.core.simple.SimpleMarkdownRules;
 
 import java.util.*;
 import java.util.regex.Matcher;
@@ -67,8 +66,12 @@ public final class DiscordMarkdownRules {
     private static final Pattern PATTERN_TEXT = Pattern.compile("^[\\s\\S]+?(?=[^0-9A-Za-z\\s\\u00c0-\\uffff>]|\\n| {2,}\\n|\\w+:\\S|$)");
     private static final Pattern PATTERN_LINK = Pattern.compile("^(https?://[^ ]+\\.[^ ]+)");
 
+    // same as SimpleMarkdownRules, which can't be matched concurrently
+    private static final Pattern PATTERN_ESCAPE = Pattern.compile("^\\\\([^0-9A-Za-z\\s])");
+    private static final Pattern PATTERN_NEWLINE = Pattern.compile("^(?:\\n *)*\\n");
+
     private static <R> StyleNode<R, StyleNode.Style> styleNode(StyleNode.Style style) {
-        return new StyleNode<>(new ArrayList<>(Collections.singletonList(style)));
+        return StyleNode.of(style);
     }
 
     /**
@@ -76,7 +79,7 @@ public final class DiscordMarkdownRules {
      * <a href="https://discord.com/developers/docs/reference#message-formatting">Discord developer docs</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createEmoteMentionRule() {
-        return new Rule<R, Node<R>, S>(PATTERN_EMOTE_MENTION) {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_EMOTE_MENTION, "<") {
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
                 String name = matcher.group(1);
@@ -117,7 +120,7 @@ public final class DiscordMarkdownRules {
      * <a href="https://support.discord.com/hc/en-us/articles/210298617-Markdown-Text-101-Chat-Formatting-Bold-Italic-Underline-">Discord blog</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createBoldRule() {
-        return createSimpleStyleRule(PATTERN_BOLD, StyleNode.Styles.BOLD);
+        return createSimpleStyleRule(PATTERN_BOLD, "*", StyleNode.Styles.BOLD);
     }
 
     /**
@@ -125,11 +128,15 @@ public final class DiscordMarkdownRules {
      * <a href="https://support.discord.com/hc/en-us/articles/210298617-Markdown-Text-101-Chat-Formatting-Bold-Italic-Underline-">Discord blog</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createUnderlineRule() {
-        return createSimpleStyleRule(PATTERN_UNDERLINE, StyleNode.Styles.UNDERLINE);
+        return createSimpleStyleRule(PATTERN_UNDERLINE, "_", StyleNode.Styles.UNDERLINE);
     }
 
     public static <R, S> Rule<R, Node<R>, S> createSimpleStyleRule(Pattern pattern, StyleNode.Style style) {
-        return new Rule<R, Node<R>, S>(pattern) {
+        return createSimpleStyleRule(pattern, null, style);
+    }
+
+    private static <R, S> Rule<R, Node<R>, S> createSimpleStyleRule(Pattern pattern, String firstCharacters, StyleNode.Style style) {
+        return new ThreadSafeRule<R, Node<R>, S>(pattern, firstCharacters) {
 
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
@@ -143,7 +150,7 @@ public final class DiscordMarkdownRules {
      * <a href="https://support.discord.com/hc/en-us/articles/210298617-Markdown-Text-101-Chat-Formatting-Bold-Italic-Underline-">Discord blog</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createItalicsRule() {
-        return new Rule<R, Node<R>, S>(PATTERN_ITALICS) {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_ITALICS, "_*") {
 
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
@@ -160,7 +167,7 @@ public final class DiscordMarkdownRules {
                 }
 
                 StyleNode.ItalicStyle style = new StyleNode.ItalicStyle(asterisk);
-                return ParseSpec.createNonterminal(new StyleNode<>(new ArrayList<>(Collections.singletonList(style))), state, startIndex, endIndex);
+                return ParseSpec.createNonterminal(StyleNode.of(style), state, startIndex, endIndex);
             }
         };
     }
@@ -170,7 +177,7 @@ public final class DiscordMarkdownRules {
      * <a href="https://support.discord.com/hc/en-us/articles/210298617-Markdown-Text-101-Chat-Formatting-Bold-Italic-Underline-">Discord blog</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createStrikethruRule() {
-        return createSimpleStyleRule(PATTERN_STRIKETHRU, StyleNode.Styles.STRIKETHROUGH);
+        return createSimpleStyleRule(PATTERN_STRIKETHRU, "~", StyleNode.Styles.STRIKETHROUGH);
     }
 
     /**
@@ -178,12 +185,17 @@ public final class DiscordMarkdownRules {
      * <a href="https://support.discord.com/hc/en-us/articles/360022320632-Spoiler-Tags-">Discord blog</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createSpoilerRule() {
-        return new Rule<R, Node<R>, S>(PATTERN_SPOILER) {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_SPOILER, "|") {
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
                 String content = matcher.group(1);
 
-                return ParseSpec.createTerminal(styleNode(new StyleNode.ContentStyle(StyleNode.ContentStyle.Type.SPOILER, content)), state);
+                return ParseSpec.createNonterminal(
+                        styleNode(new StyleNode.ContentStyle(StyleNode.ContentStyle.Type.SPOILER, content)),
+                        state,
+                        matcher.start(1),
+                        matcher.end(1)
+                );
             }
         };
     }
@@ -193,7 +205,7 @@ public final class DiscordMarkdownRules {
      * <a href="https://support.discord.com/hc/en-us/articles/210298617-Markdown-Text-101-Chat-Formatting-Bold-Italic-Underline-">Discord blog</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createCodeStringRule() {
-        return new Rule<R, Node<R>, S>(PATTERN_CODE_STRING) {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_CODE_STRING, "`") {
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
                 String content = matcher.group(1);
@@ -203,7 +215,7 @@ public final class DiscordMarkdownRules {
                 return ParseSpec.createTerminal(
                         StyleNode.createWithText(
                                 content,
-                                new ArrayList<>(Collections.singletonList(StyleNode.Styles.CODE_STRING))
+                                StyleNode.Styles.CODE_STRING
                         ),
                         state
                 );
@@ -212,7 +224,7 @@ public final class DiscordMarkdownRules {
     }
 
     private static <R, S> Rule<R, Node<R>, S> createSimpleMentionRule(Pattern pattern, StyleNode.MentionStyle.Type style) {
-        return new Rule<R, Node<R>, S>(pattern) {
+        return new ThreadSafeRule<R, Node<R>, S>(pattern, "<") {
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
                 String id = matcher.group(1);
@@ -231,7 +243,7 @@ public final class DiscordMarkdownRules {
      * @see #createSpecialTextRule()
      */
     public static <R> Rule<R, Node<R>, Object> createQuoteRule() {
-        return new Rule<R, Node<R>, Object>(PATTERN_QUOTE) {
+        return new ThreadSafeRule<R, Node<R>, Object>(PATTERN_QUOTE, ">") {
             @Override
             public Matcher match(CharSequence inspectionSource, String lastCapture, Object state) {
                 if (state instanceof QuoteState && ((QuoteState) state).isInQuote) {
@@ -261,14 +273,14 @@ public final class DiscordMarkdownRules {
      * <a href="https://support.discord.com/hc/en-us/articles/210298617-Markdown-Text-101-Chat-Formatting-Bold-Italic-Underline-">Discord blog</a>
      */
     public static <R, S> Rule<R, Node<R>, S> createCodeBlockRule() {
-        return new Rule<R, Node<R>, S>(PATTERN_CODE_BLOCK) {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_CODE_BLOCK, "`") {
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
                 String language = matcher.group(1);
                 return ParseSpec.createTerminal(
                         StyleNode.createWithText(
                                 matcher.group(2),
-                                new ArrayList<>(Collections.singletonList(new StyleNode.CodeBlockStyle(language)))
+                                new StyleNode.CodeBlockStyle(language)
                         ),
                         state
                 );
@@ -281,7 +293,7 @@ public final class DiscordMarkdownRules {
      * @see #createQuoteRule()
      */
     public static <R, S> Rule<R, Node<R>, S> createSpecialTextRule() {
-        return new Rule<R, Node<R>, S>(PATTERN_TEXT) {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_TEXT) {
 
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
@@ -295,7 +307,7 @@ public final class DiscordMarkdownRules {
      * @see dev.vankka.simpleast.core.simple.SimpleMarkdownRules#createLinkRule()
      */
     public static <R, S> Rule<R, Node<R>, S> createLinkRule() {
-        return new Rule<R, Node<R>, S>(PATTERN_LINK) {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_LINK, "h") {
             @Override
             public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
                 String link = matcher.group(1);
@@ -308,6 +320,32 @@ public final class DiscordMarkdownRules {
         };
     }
 
+    /**
+     * Creates an escape rule, for including the character after a backslash as text.
+     * @see dev.vankka.simpleast.core.simple.SimpleMarkdownRules#createEscapeRule()
+     */
+    public static <R, S> Rule<R, Node<R>, S> createEscapeRule() {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_ESCAPE, "\\") {
+            @Override
+            public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
+                return ParseSpec.createTerminal(new TextNode<>(matcher.group(1)), state);
+            }
+        };
+    }
+
+    /**
+     * Creates a newline rule, for collapsing consecutive blank lines into a single newline.
+     * @see dev.vankka.simpleast.core.simple.SimpleMarkdownRules#createNewlineRule()
+     */
+    public static <R, S> Rule<R, Node<R>, S> createNewlineRule() {
+        return new ThreadSafeRule<R, Node<R>, S>(PATTERN_NEWLINE, "\n") {
+            @Override
+            public ParseSpec<R, Node<R>, S> parse(Matcher matcher, Parser<R, Node<R>, S> parser, S state) {
+                return ParseSpec.createTerminal(new TextNode<>("\n"), state);
+            }
+        };
+    }
+
     /**
      * Creates all the mention rules.
      *
@@ -365,9 +403,9 @@ public final class DiscordMarkdownRules {
      */
     public static <R> List<Rule<R, Node<R>, Object>> createSimpleMarkdownRules() {
         List<Rule<R, Node<R>, Object>> rules = new ArrayList<>();
-        rules.add(SimpleMarkdownRules.createEscapeRule());
+        rules.add(createEscapeRule());
         rules.add(createLinkRule());
-        rules.add(SimpleMarkdownRules.createNewlineRule());
+        rules.add(createNewlineRule());
         rules.add(createBoldRule());
         rules.add(createUnderlineRule());
         rules.add(createItalicsRule());
@@ -394,9 +432,10 @@ public final class DiscordMarkdownRules {
 
     /**
      * A state for quotes, used to not recursively parse quotes.
+     * The state is immutable, so it can be shared between parses and threads.
      */
     public static class QuoteState {
-        private boolean isInQuote;
+        private final boolean isInQuote;
 
         /**
          * Creates a {@link dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownRules.QuoteState}.
@@ -406,11 +445,17 @@ public final class DiscordMarkdownRules {
         }
 
         /**
-         * Sets a new status for this quote state.
+         * Gets the status of this quote state.
+         */
+        public boolean isInQuote() {
+            return isInQuote;
+        }
+
+        /**
+         * Gets a quote state with the given status, this quote state is not modified.
          */
         public QuoteState newQuoteState(boolean isInQuote) {
-            this.isInQuote = isInQuote;
-            return this;
+            return isInQuote == this.isInQuote ? this : new QuoteState(isInQuote);
         }
     }
 }
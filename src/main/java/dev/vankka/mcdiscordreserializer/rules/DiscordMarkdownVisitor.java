@@ -0,0 +1,104 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.rules;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the contents of a Discord message as {@link DiscordMarkdownParser#parse(CharSequence, Object, DiscordMarkdownVisitor)}
+ * scans it, without building an abstract syntax tree.
+ * <p>
+ * Every part of the message is passed as a range of the message, so nothing is copied unless the visitor copies it.
+ * Styles are started before and ended after their content, the ranges are the same as the ranges of a {@link CompactTree}.
+ * All methods do nothing by default.
+ * </p>
+ */
+public interface DiscordMarkdownVisitor {
+
+    /**
+     * Text, text that is next to each other in the message is passed at once.
+     * @param source the message
+     * @param start the start of the text
+     * @param end the end of the text
+     */
+    default void onText(@NotNull String source, int start, int end) {}
+
+    /**
+     * The start of a style that has content, which is one of {@link CompactTree.Type#BOLD}, {@link CompactTree.Type#UNDERLINE},
+     * {@link CompactTree.Type#STRIKETHROUGH}, {@link CompactTree.Type#ASTERISK_ITALICS}, {@link CompactTree.Type#UNDERSCORE_ITALICS},
+     * {@link CompactTree.Type#QUOTE} or {@link CompactTree.Type#SPOILER}.
+     * @param style the style
+     * @param source the message
+     * @param start the start of the content
+     * @param end the end of the content
+     */
+    default void onStyleStart(@NotNull CompactTree.Type style, @NotNull String source, int start, int end) {}
+
+    /**
+     * The end of a style, after all of its content.
+     * @param style the style
+     */
+    default void onStyleEnd(@NotNull CompactTree.Type style) {}
+
+    /**
+     * A code string.
+     * @param source the message
+     * @param start the start of the code
+     * @param end the end of the code
+     */
+    default void onCodeString(@NotNull String source, int start, int end) {}
+
+    /**
+     * A code block.
+     * @param source the message
+     * @param start the start of the code
+     * @param end the end of the code
+     * @param languageStart the start of the language or {@code -1} if the code block doesn't specify one
+     * @param languageEnd the end of the language or {@code -1} if the code block doesn't specify one
+     */
+    default void onCodeBlock(@NotNull String source, int start, int end, int languageStart, int languageEnd) {}
+
+    /**
+     * A link.
+     * @param source the message
+     * @param start the start of the link
+     * @param end the end of the link
+     */
+    default void onLink(@NotNull String source, int start, int end) {}
+
+    /**
+     * A mention, which is one of {@link CompactTree.Type#USER_MENTION}, {@link CompactTree.Type#CHANNEL_MENTION}
+     * or {@link CompactTree.Type#ROLE_MENTION}.
+     * @param type the type of mention
+     * @param source the message
+     * @param start the start of the id
+     * @param end the end of the id
+     */
+    default void onMention(@NotNull CompactTree.Type type, @NotNull String source, int start, int end) {}
+
+    /**
+     * A custom emoji.
+     * @param source the message
+     * @param nameStart the start of the name
+     * @param nameEnd the end of the name
+     * @param idStart the start of the id
+     * @param idEnd the end of the id
+     */
+    default void onEmoji(@NotNull String source, int nameStart, int nameEnd, int idStart, int idEnd) {}
+}
@@ -0,0 +1,233 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.rules;
+
+import dev.vankka.simpleast.core.ParseException;
+import dev.vankka.simpleast.core.node.Node;
+import dev.vankka.simpleast.core.parser.ParseSpec;
+import dev.vankka.simpleast.core.parser.Parser;
+import dev.vankka.simpleast.core.parser.Rule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * A {@link Parser} that only tries the rules that can match at the current character.
+ * <p>
+ * Rules are indexed by the {@link ThreadSafeRule#getFirstCharacters() first characters} they declare,
+ * rules without a declaration (including any {@link Rule} that isn't a {@link ThreadSafeRule}) are tried at every position.
+ * The rules are still tried in order, so the result is the same as with a regular {@link Parser}.
+ * </p>
+ * <p>
+ * Rules are given a view of the remaining source instead of a copy of it,
+ * which {@link ThreadSafeRule}s match as a region of the whole source with their reused {@link Matcher}.
+ * </p>
+ */
+public final class IndexedParser extends Parser<Object, Node<Object>, Object> {
+
+    private volatile RuleIndex lastIndex;
+
+    @Override
+    public List<Node<Object>> parse(CharSequence source, Object state, List<Rule<Object, Node<Object>, Object>> rules, boolean enableDebugging) {
+        if (rules == null || enableDebugging) {
+            // the parser's own rules may change at any time, and only the regular parser logs the rules it tries
+            return super.parse(source, state, rules, enableDebugging);
+        }
+
+        RuleIndex index = lastIndex;
+        if (index == null || !index.isFor(rules)) {
+            lastIndex = index = new RuleIndex(rules);
+        }
+
+        Node<Object> root = new Node<Object>() {};
+        Deque<ParseSpec<Object, Node<Object>, Object>> stack = new ArrayDeque<>();
+        if (source != null && source.length() > 0) {
+            stack.push(new ParseSpec<>(root, state, 0, source.length()));
+        }
+
+        String lastCapture = null;
+        while (!stack.isEmpty()) {
+            ParseSpec<Object, Node<Object>, Object> builder = stack.pop();
+            if (builder.getStartIndex() >= builder.getEndIndex()) {
+                break;
+            }
+
+            Region inspectionSource = new Region(source, builder.getStartIndex(), builder.getEndIndex());
+            int offset = builder.getStartIndex();
+
+            boolean foundRule = false;
+            for (Rule<Object, Node<Object>, Object> rule : index.candidates(source.charAt(offset))) {
+                Matcher matcher = rule.match(inspectionSource, lastCapture, builder.getState());
+                if (matcher == null) {
+                    continue;
+                }
+
+                // rules that matched a region of the whole source already return indices within the source
+                int matcherOffset = inspectionSource.isMatchedInSource(matcher) ? 0 : offset;
+                int matcherSourceEnd = matcher.end() + matcherOffset;
+                ParseSpec<Object, Node<Object>, Object> newBuilder = rule.parse(matcher, this, builder.getState());
+
+                Node<Object> parent = builder.getRoot();
+                parent.addChild(newBuilder.getRoot());
+
+                // In case the last match didn't consume the rest of the source for this subtree,
+                // make sure the rest of the source is consumed.
+                if (matcherSourceEnd != builder.getEndIndex()) {
+                    stack.push(ParseSpec.createNonterminal(parent, builder.getState(), matcherSourceEnd, builder.getEndIndex()));
+                }
+
+                // We want to speak in terms of indices within the source string,
+                // but the Rules only see the matched subsequence, so apply the offset.
+                if (!newBuilder.isTerminal()) {
+                    newBuilder.applyOffset(matcherOffset);
+                    stack.push(newBuilder);
+                }
+
+                lastCapture = matcher.group(0);
+                foundRule = true;
+                break;
+            }
+
+            if (!foundRule) {
+                throw new ParseException("failed to find rule to match source", inspectionSource);
+            }
+        }
+        return root.getChildren();
+    }
+
+    /**
+     * The part of the source that is left to parse, without copying it.
+     */
+    static final class Region implements CharSequence {
+
+        private final CharSequence source;
+        private final int start;
+        private final int end;
+        private Matcher sourceMatcher;
+
+        private Region(CharSequence source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Records that the matcher is matching this region of the whole source, so its indices are within the source.
+         */
+        void setSourceMatcher(Matcher matcher) {
+            this.sourceMatcher = matcher;
+        }
+
+        /**
+         * If the matcher was {@link #setSourceMatcher(Matcher) recorded} as matching this region of the whole source,
+         * and hasn't been reset to other input since.
+         */
+        boolean isMatchedInSource(Matcher matcher) {
+            return matcher == sourceMatcher && matcher.regionStart() == start && matcher.regionEnd() == end;
+        }
+
+        CharSequence getSource() {
+            return source;
+        }
+
+        int getStart() {
+            return start;
+        }
+
+        int getEnd() {
+            return end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return source.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+            }
+            return new Region(source, this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            return source.subSequence(start, end).toString();
+        }
+    }
+
+    /**
+     * The rules that may match for each ascii character, in their original order.
+     */
+    private static final class RuleIndex {
+
+        private final List<Rule<Object, Node<Object>, Object>> rules;
+        private final List<Rule<Object, Node<Object>, Object>> order;
+        private final List<List<Rule<Object, Node<Object>, Object>>> ascii = new ArrayList<>(128);
+        private final List<Rule<Object, Node<Object>, Object>> other = new ArrayList<>();
+
+        private RuleIndex(List<Rule<Object, Node<Object>, Object>> rules) {
+            this.rules = rules;
+            this.order = new ArrayList<>(rules);
+            for (int i = 0; i < 128; i++) {
+                ascii.add(new ArrayList<>());
+            }
+
+            for (Rule<Object, Node<Object>, Object> rule : order) {
+                String firstCharacters = rule instanceof ThreadSafeRule
+                                         ? ((ThreadSafeRule<?, ?, ?>) rule).getFirstCharacters()
+                                         : null;
+                for (int i = 0; i < 128; i++) {
+                    if (firstCharacters == null || firstCharacters.indexOf(i) != -1) {
+                        ascii.get(i).add(rule);
+                    }
+                }
+                if (firstCharacters == null || firstCharacters.chars().anyMatch(character -> character >= 128)) {
+                    other.add(rule);
+                }
+            }
+        }
+
+        private boolean isFor(List<Rule<Object, Node<Object>, Object>> rules) {
+            if (this.rules != rules || rules.size() != order.size()) {
+                return false;
+            }
+            // the list may be a view of a list that was modified since
+            for (int i = 0; i < order.size(); i++) {
+                if (order.get(i) != rules.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private List<Rule<Object, Node<Object>, Object>> candidates(char character) {
+            return character < 128 ? ascii.get(character) : other;
+        }
+    }
+}
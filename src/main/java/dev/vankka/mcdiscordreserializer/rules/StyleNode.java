@@ -21,6 +21,8 @@ package dev.vankka.mcdiscordreserializer.rules;
 import dev.vankka.simpleast.core.node.Node;
 import dev.vankka.simpleast.core.node.TextNode;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class StyleNode<RC, T> extends Node<RC> {
@@ -31,6 +33,14 @@ public class StyleNode<RC, T> extends Node<RC> {
         this.styles = styles;
     }
 
+    /**
+     * Gets the styles of this node.
+     * The nodes produced by {@link DiscordMarkdownRules} and {@link DiscordMarkdownParser} have styles that cannot be modified,
+     * modifying them throws an {@link UnsupportedOperationException}. Renderers should read the styles instead of removing
+     * the ones they have rendered, so that the same tree can be rendered again.
+     * @return the styles
+     * @see #of(Object)
+     */
     public List<T> getStyles() {
         return styles;
     }
@@ -48,6 +58,38 @@ public class StyleNode<RC, T> extends Node<RC> {
         return styleNode;
     }
 
+    /**
+     * Creates a node with the given text and a single style that cannot be modified.
+     * @see #of(Object)
+     */
+    public static <RC> StyleNode<RC, Style> createWithText(String content, Style style) {
+        StyleNode<RC, Style> styleNode = of(style);
+        styleNode.addChild(new TextNode<>(content));
+        return styleNode;
+    }
+
+    /**
+     * Creates a node with a single style that cannot be modified, this is what the rules produce.
+     * Together with the styles themselves being immutable, a parsed tree can be shared between threads
+     * as long as its children aren't modified.
+     */
+    public static <RC, T> StyleNode<RC, T> of(T style) {
+        return new StyleNode<>(Collections.singletonList(style));
+    }
+
+    /**
+     * Creates a node with the given styles, which cannot be modified.
+     * @see #of(Object)
+     */
+    @SafeVarargs
+    public static <RC, T> StyleNode<RC, T> of(T... styles) {
+        List<T> list = new ArrayList<>(styles.length);
+        for (T style : styles) {
+            list.add(style);
+        }
+        return new StyleNode<>(Collections.unmodifiableList(list));
+    }
+
     public interface Style {
         String name();
     }
@@ -0,0 +1,133 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.rules;
+
+import dev.vankka.simpleast.core.node.Node;
+import dev.vankka.simpleast.core.parser.Rule;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link dev.vankka.simpleast.core.parser.Rule} that can be matched from multiple threads at the same time.
+ * <p>
+ * A plain {@link dev.vankka.simpleast.core.parser.Rule} shares a single {@link java.util.regex.Matcher} between all callers,
+ * this rule keeps a {@link java.util.regex.Matcher} per thread instead.
+ * {@link dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions} only parses without locking
+ * when all of its rules extend this class.
+ * </p>
+ * <p>
+ * A rule may also declare the characters its matches can start with,
+ * which lets it skip the regex for other input and {@link IndexedParser} skip the rule entirely.
+ * </p>
+ * <p>
+ * When used with {@link IndexedParser} the rule matches a region of the whole source,
+ * so the {@link Matcher} it returns has indices within the source rather than within the inspected part.
+ * </p>
+ *
+ * @param <R> the render context
+ * @param <T> the type of node
+ * @param <S> the type of state
+ */
+public abstract class ThreadSafeRule<R, T extends Node<R>, S> extends Rule<R, T, S> {
+
+    private final ThreadLocal<Matcher> matcher;
+    private final String firstCharacters;
+    private final boolean anchored;
+
+    public ThreadSafeRule(Pattern pattern) {
+        this(pattern, null);
+    }
+
+    /**
+     * Creates a rule that can only match when the input starts with one of the given characters.
+     * @param pattern the pattern for this rule
+     * @param firstCharacters the characters matches can start with, {@code null} if any character
+     */
+    public ThreadSafeRule(Pattern pattern, @Nullable String firstCharacters) {
+        super(pattern);
+        this.matcher = ThreadLocal.withInitial(() -> pattern.matcher(""));
+        this.firstCharacters = firstCharacters;
+        this.anchored = isAnchored(pattern);
+    }
+
+    /**
+     * Checks if the pattern can only match at the start of the input, in which case
+     * {@link Matcher#lookingAt()} finds the same match as {@link Matcher#find()} without trying every later position.
+     * This is conservative, a pattern that is anchored in a way this doesn't recognize is still matched with find.
+     */
+    private static boolean isAnchored(Pattern pattern) {
+        String regex = pattern.pattern();
+        if ((pattern.flags() & (Pattern.MULTILINE | Pattern.LITERAL | Pattern.COMMENTS)) != 0
+                || !regex.startsWith("^") || regex.contains("\\Q")) {
+            return false;
+        }
+
+        // an alternative outside of any group isn't anchored by the leading ^, unless it starts with one itself
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 1; i < regex.length(); i++) {
+            char character = regex.charAt(i);
+            if (character == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = character != ']';
+            } else if (character == '[') {
+                inClass = true;
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+            } else if (character == '(') {
+                depth++;
+            } else if (character == ')') {
+                depth--;
+            } else if (character == '|' && depth == 0 && (i + 1 >= regex.length() || regex.charAt(i + 1) != '^')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the characters that matches of this rule can start with.
+     * @return the characters or {@code null} if a match could start with any character
+     */
+    public @Nullable String getFirstCharacters() {
+        return firstCharacters;
+    }
+
+    @Override
+    public Matcher match(CharSequence inspectionSource, String lastCapture, S state) {
+        if (firstCharacters != null
+                && (inspectionSource.length() == 0 || firstCharacters.indexOf(inspectionSource.charAt(0)) == -1)) {
+            return null;
+        }
+        Matcher matcher = this.matcher.get();
+        if (inspectionSource instanceof IndexedParser.Region) {
+            // anchoring bounds make ^ and $ match at the ends of the region, like they would for a copy of it
+            IndexedParser.Region region = (IndexedParser.Region) inspectionSource;
+            matcher.reset(region.getSource()).region(region.getStart(), region.getEnd());
+            region.setSourceMatcher(matcher);
+        } else {
+            matcher.reset(inspectionSource);
+        }
+        return (anchored ? matcher.lookingAt() : matcher.find()) ? matcher : null;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.discord;
+
+import dev.vankka.mcdiscordreserializer.cache.CacheStats;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.TextDecoration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CachingDiscordSerializerTest {
+
+    private Component joinMessage(String player) {
+        return Component.text()
+                .append(Component.text(player).decorate(TextDecoration.BOLD))
+                .append(Component.text(" joined the game"))
+                .build();
+    }
+
+    @Test
+    public void cacheTest() {
+        CachingDiscordSerializer serializer = new CachingDiscordSerializer(10);
+
+        Component component = joinMessage("Vankka");
+        String expected = DiscordSerializer.INSTANCE.serialize(component);
+        Assertions.assertEquals(expected, serializer.serialize(component));
+        Assertions.assertEquals(expected, serializer.serialize(component));
+        // Equal, but not the same instance
+        Assertions.assertEquals(expected, serializer.serialize(joinMessage("Vankka")));
+
+        CacheStats stats = serializer.getCacheStats();
+        Assertions.assertEquals(1, stats.getMissCount());
+        Assertions.assertEquals(2, stats.getHitCount());
+
+        // Different options
+        DiscordSerializerOptions options = DiscordSerializerOptions.defaults().withCompactFormatting(true);
+        Assertions.assertEquals(DiscordSerializer.INSTANCE.serialize(component, options), serializer.serialize(component, options));
+        Assertions.assertEquals(2, serializer.getCacheStats().getMissCount());
+
+        // Different component
+        Assertions.assertEquals(DiscordSerializer.INSTANCE.serialize(joinMessage("Notch")), serializer.serialize(joinMessage("Notch")));
+        Assertions.assertEquals(3, serializer.getCacheStats().getMissCount());
+    }
+
+    @Test
+    public void optionsTest() {
+        CachingDiscordSerializer serializer = new CachingDiscordSerializer(10);
+
+        Component component = joinMessage("Vankka");
+        serializer.serialize(component, DiscordSerializerOptions.defaults());
+        // A new instance with the same values
+        serializer.serialize(component, DiscordSerializerOptions.defaults());
+        serializer.serialize(component, DiscordSerializerOptions.defaults().withCompactFormatting(true));
+
+        CacheStats stats = serializer.getCacheStats();
+        Assertions.assertEquals(1, stats.getHitCount());
+        Assertions.assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    public void evictionTest() {
+        CachingDiscordSerializer serializer = new CachingDiscordSerializer(2);
+
+        serializer.serialize(joinMessage("a"));
+        serializer.serialize(joinMessage("b"));
+        serializer.serialize(joinMessage("a")); // "b" is now the least recently used
+        serializer.serialize(joinMessage("c"));
+        Assertions.assertEquals(1, serializer.getCacheStats().getEvictionCount());
+
+        serializer.serialize(joinMessage("a"));
+        serializer.serialize(joinMessage("b"));
+
+        CacheStats stats = serializer.getCacheStats();
+        Assertions.assertEquals(2, stats.getHitCount());
+        Assertions.assertEquals(4, stats.getMissCount());
+        Assertions.assertEquals(2, stats.getEvictionCount());
+    }
+
+    @Test
+    public void invalidSizeTest() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CachingDiscordSerializer(0));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.discord;
+
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextDecoration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link DiscordSerializerOptions#isCompactFormatting()}, including a differential test against the default output.
+ */
+public class CompactFormattingTest {
+
+    private static final String SEPARATOR = "\u200B";
+    private static final TextDecoration[] DECORATIONS = {
+            TextDecoration.BOLD,
+            TextDecoration.STRIKETHROUGH,
+            TextDecoration.ITALIC,
+            TextDecoration.UNDERLINED
+    };
+    private static final String[] WORDS = {"a", "b c", " ", "x*y", "u_v", "c~d", "*a", "_b", "|", "`", "foo bar", "é", "1", ".", "!"};
+
+    private final DiscordSerializerOptions options = DiscordSerializerOptions.defaults();
+    private final DiscordSerializer serializer = new DiscordSerializer(options.withCompactFormatting(true));
+
+    @Test
+    public void keepFormattingTest() {
+        Assertions.assertEquals(
+                "**bold__ underline__ bold**",
+                serializer.serialize(
+                        Component.text()
+                                .append(Component.text("bold").decorate(TextDecoration.BOLD))
+                                .append(Component.text(" underline").decorate(TextDecoration.BOLD, TextDecoration.UNDERLINED))
+                                .append(Component.text(" bold").decorate(TextDecoration.BOLD))
+                                .build()
+                )
+        );
+
+        Assertions.assertEquals(
+                "_italic __both__ italic_",
+                serializer.serialize(
+                        Component.text()
+                                .decorate(TextDecoration.ITALIC)
+                                .append(Component.text("italic "))
+                                .append(Component.text("both").decorate(TextDecoration.UNDERLINED))
+                                .append(Component.text(" italic"))
+                                .build()
+                )
+        );
+    }
+
+    @Test
+    public void separatorTest() {
+        // Italics only work at word boundaries
+        Assertions.assertEquals(
+                "word" + SEPARATOR + "_italic_" + SEPARATOR + "word",
+                serializer.serialize(
+                        Component.text()
+                                .append(Component.text("word"))
+                                .append(Component.text("italic").decorate(TextDecoration.ITALIC))
+                                .append(Component.text("word"))
+                                .build()
+                )
+        );
+
+        // "___" can't be closed one marker at a time
+        Assertions.assertEquals(
+                "___both___" + SEPARATOR + "_ italic_",
+                serializer.serialize(
+                        Component.text()
+                                .append(Component.text("both").decorate(TextDecoration.ITALIC, TextDecoration.UNDERLINED))
+                                .append(Component.text(" italic").decorate(TextDecoration.ITALIC))
+                                .build()
+                )
+        );
+
+        // Escaped "~" before "~~"
+        Assertions.assertEquals(
+                "~~strike\\~" + SEPARATOR + "~~ plain",
+                serializer.serialize(
+                        Component.text()
+                                .append(Component.text("strike~").decorate(TextDecoration.STRIKETHROUGH))
+                                .append(Component.text(" plain"))
+                                .build()
+                )
+        );
+    }
+
+    @Test
+    public void maskedLinkTest() {
+        Assertions.assertEquals(
+                "**[link](<https://example.com>) text**",
+                serializer.serialize(
+                        Component.text()
+                                .decorate(TextDecoration.BOLD)
+                                .append(Component.text("link").clickEvent(ClickEvent.openUrl("https://example.com")))
+                                .append(Component.text(" text"))
+                                .build(),
+                        options.withCompactFormatting(true).withMaskedLinks(true)
+                )
+        );
+    }
+
+    @Test
+    public void chunkTest() {
+        Assertions.assertEquals(
+                Arrays.asList("**aaaa **", "**__bbbb__**", "**__ __**", "**cccc**"),
+                serializer.serializeChunks(
+                        Component.text()
+                                .decorate(TextDecoration.BOLD)
+                                .append(Component.text("aaaa "))
+                                .append(Component.text("bbbb ").decorate(TextDecoration.UNDERLINED))
+                                .append(Component.text("cccc"))
+                                .build(),
+                        12
+                )
+        );
+    }
+
+    @Test
+    public void differentialTest() {
+        Random random = new Random(5);
+        MinecraftSerializer minecraftSerializer = MinecraftSerializer.INSTANCE;
+        int fullLength = 0, compactLength = 0;
+        for (int i = 0; i < 5000; i++) {
+            Component component = randomComponent(random, 0);
+            String full = serializer.serialize(component, options);
+            String compact = serializer.serialize(component);
+
+            Assertions.assertEquals(
+                    styledCharacters(minecraftSerializer.serialize(full)),
+                    styledCharacters(minecraftSerializer.serialize(compact)),
+                    () -> "Rendered differently:\n" + full + "\n" + compact
+            );
+            Assertions.assertTrue(compact.length() <= full.length(), () -> "Compact output is longer:\n" + full + "\n" + compact);
+            fullLength += full.length();
+            compactLength += compact.length();
+        }
+        Assertions.assertTrue(compactLength < fullLength);
+    }
+
+    private Component randomComponent(Random random, int depth) {
+        TextComponent.Builder builder = Component.text();
+        StringBuilder content = new StringBuilder();
+        int words = random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            content.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        builder.content(content.toString());
+
+        for (TextDecoration decoration : DECORATIONS) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder.decoration(decoration, true);
+                    break;
+                case 1:
+                    builder.decoration(decoration, false);
+                    break;
+            }
+        }
+
+        if (depth < 3) {
+            int children = random.nextInt(4);
+            for (int i = 0; i < children; i++) {
+                builder.append(randomComponent(random, depth + 1));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Every character of the component with its decorations, without zero width spaces.
+     */
+    private List<String> styledCharacters(Component component) {
+        List<String> characters = new ArrayList<>();
+        styledCharacters(component, Style.empty(), characters);
+        return characters;
+    }
+
+    private void styledCharacters(Component component, Style parentStyle, List<String> characters) {
+        Style style = component.style().merge(parentStyle, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+        if (component instanceof TextComponent) {
+            String content = ((TextComponent) component).content();
+            for (char character : content.toCharArray()) {
+                if (character == '\u200B') {
+                    continue;
+                }
+
+                StringBuilder styled = new StringBuilder().append(character);
+                for (TextDecoration decoration : DECORATIONS) {
+                    if (style.decoration(decoration) == TextDecoration.State.TRUE) {
+                        styled.append(' ').append(decoration);
+                    }
+                }
+                characters.add(styled.toString());
+            }
+        }
+        for (Component child : component.children()) {
+            styledCharacters(child, style, characters);
+        }
+    }
+}
@@ -19,12 +19,22 @@
 package dev.vankka.mcdiscordreserializer.discord;
 
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.KeybindComponent;
+import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.flattener.ComponentFlattener;
 import net.kyori.adventure.text.format.TextDecoration;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class DiscordSerializerTest {
 
     private static final String SEPARATOR = "\u200B";
@@ -72,6 +82,46 @@ public class DiscordSerializerTest {
         );
     }
 
+    @Test
+    public void nestedStyleTest() {
+        // Equal styles nested inside each other
+        Assertions.assertEquals(
+                "**abc**" + SEPARATOR + "d",
+                serializer.serialize(
+                        Component.text()
+                                .append(
+                                        Component.text()
+                                                .content("a")
+                                                .decorate(TextDecoration.BOLD)
+                                                .append(Component.text("b").decorate(TextDecoration.BOLD))
+                                                .append(Component.text("c"))
+                                )
+                                .append(Component.text("d"))
+                                .build()
+                )
+        );
+
+        Assertions.assertEquals(
+                "**a**" + SEPARATOR + "b" + SEPARATOR + "**c**" + SEPARATOR + "d",
+                serializer.serialize(
+                        Component.text()
+                                .append(
+                                        Component.text()
+                                                .content("a")
+                                                .decorate(TextDecoration.BOLD)
+                                                .append(
+                                                        Component.text()
+                                                                .content("b")
+                                                                .decoration(TextDecoration.BOLD, false)
+                                                                .append(Component.text("c").decorate(TextDecoration.BOLD))
+                                                )
+                                )
+                                .append(Component.text("d"))
+                                .build()
+                )
+        );
+    }
+
     @Test
     public void openUrlTest() {
         Assertions.assertEquals(
@@ -95,6 +145,16 @@ public class DiscordSerializerTest {
                 )
         );
 
+        Assertions.assertEquals(
+                "[\\*Discord\\*](<https://discord.com>)",
+                serializerWithLinks.serialize(
+                        Component.text()
+                                .content("*Discord*")
+                                .clickEvent(ClickEvent.openUrl("https://discord.com"))
+                                .build()
+                )
+        );
+
         Assertions.assertEquals(
                 "**[Discord](<https://discord.com>)**",
                 serializerWithLinks.serialize(
@@ -106,4 +166,201 @@ public class DiscordSerializerTest {
                 )
         );
     }
+
+    @Test
+    public void hoverCacheTest() {
+        AtomicInteger flattened = new AtomicInteger();
+        DiscordSerializerOptions options = DiscordSerializerOptions.defaults()
+                .withMaskedLinks(true)
+                .withFlattener(
+                        ComponentFlattener.basic().toBuilder()
+                                .mapper(KeybindComponent.class, keybind -> {
+                                    flattened.incrementAndGet();
+                                    return keybind.keybind();
+                                })
+                                .build()
+                );
+        DiscordSerializer serializer = new DiscordSerializer(options);
+
+        Component hover = Component.keybind("hover");
+        for (Component currentHover : new Component[] {hover, hover, Component.keybind("hover")}) {
+            Assertions.assertEquals(
+                    "[Discord](<https://discord.com> \"hover\")",
+                    serializer.serialize(
+                            Component.text()
+                                    .content("Discord")
+                                    .clickEvent(ClickEvent.openUrl("https://discord.com"))
+                                    .hoverEvent(HoverEvent.showText(currentHover))
+                                    .build()
+                    )
+            );
+        }
+        // Same and equal hover components are only flattened once
+        Assertions.assertEquals(1, flattened.get());
+
+        serializer.serialize(
+                Component.text()
+                        .content("Discord")
+                        .clickEvent(ClickEvent.openUrl("https://discord.com"))
+                        .hoverEvent(HoverEvent.showText(Component.keybind("other")))
+                        .build()
+        );
+        Assertions.assertEquals(2, flattened.get());
+    }
+
+    @Test
+    public void escapeTest() {
+        Assertions.assertEquals(
+                "\\*not\\_bold\\* \\~\\`\\|",
+                serializer.serialize(Component.text("*not_bold* ~`|"))
+        );
+
+        Assertions.assertEquals(
+                "see https://example.com/" + SEPARATOR + "**a_b**",
+                serializer.serialize(
+                        Component.text()
+                                .append(Component.text("see https://example.com/"))
+                                .append(Component.text("a_b").decorate(TextDecoration.BOLD))
+                                .build()
+                )
+        );
+
+        Assertions.assertEquals(
+                "see https://example.com/ " + SEPARATOR + "**a\\_b**",
+                serializer.serialize(
+                        Component.text()
+                                .append(Component.text("see https://example.com/ "))
+                                .append(Component.text("a_b").decorate(TextDecoration.BOLD))
+                                .build()
+                )
+        );
+
+        Assertions.assertEquals(
+                "https://example\n." + SEPARATOR + "**a\\_b**",
+                serializer.serialize(
+                        Component.text()
+                                .append(Component.text("https://example\n."))
+                                .append(Component.text("a_b").decorate(TextDecoration.BOLD))
+                                .build()
+                )
+        );
+    }
+
+    @Test
+    public void longComponentTest() {
+        TextComponent.Builder builder = Component.text();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            boolean bold = i % 2 == 0;
+            builder.append(Component.text("https://example.com/" + i + "_").decoration(TextDecoration.BOLD, bold));
+            if (i != 0) {
+                expected.append(SEPARATOR);
+            }
+            expected.append(bold ? "**" : "").append("https://example.com/").append(i).append(i == 0 ? "\\_" : "_").append(bold ? "**" : "");
+        }
+        Component component = builder.build();
+
+        String output = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(3), () -> serializer.serialize(component));
+        Assertions.assertEquals(expected.toString(), output);
+    }
+
+    @Test
+    public void appendableTest() throws IOException {
+        Component component = Component.text()
+                .append(Component.text("bold").decorate(TextDecoration.BOLD))
+                .append(Component.text("bold underline").decorate(TextDecoration.BOLD, TextDecoration.UNDERLINED))
+                .append(Component.text("*plain*"))
+                .build();
+
+        StringWriter writer = new StringWriter();
+        serializer.serialize(component, serializer.getDefaultOptions(), writer);
+        Assertions.assertEquals(serializer.serialize(component), writer.toString());
+        Assertions.assertEquals(
+                "**bold**" + SEPARATOR + "**__bold underline__**" + SEPARATOR + "\\*plain\\*",
+                writer.toString()
+        );
+
+        StringBuilder builder = new StringBuilder("prefix: ");
+        serializer.serialize(Component.empty(), serializer.getDefaultOptions(), builder);
+        Assertions.assertEquals("prefix: ", builder.toString());
+    }
+
+    @Test
+    public void plainTest() {
+        String[] contents = {"", "plain", "plain text, with: punctuation!", "\u00E9 \uD83D\uDE00", "*", "a_b", "~~", "`code`", "||", "https://example.com"};
+        Component[] components = new Component[contents.length * 5];
+        for (int i = 0; i < contents.length; i++) {
+            components[i * 5] = Component.text(contents[i]);
+            components[i * 5 + 1] = Component.text(contents[i]).decoration(TextDecoration.BOLD, false);
+            components[i * 5 + 2] = Component.text(contents[i]).decorate(TextDecoration.ITALIC);
+            components[i * 5 + 3] = Component.text(contents[i]).clickEvent(ClickEvent.openUrl("https://example.com"));
+            components[i * 5 + 4] = Component.text(contents[i]).hoverEvent(HoverEvent.showText(Component.text("hover")));
+        }
+
+        for (DiscordSerializerOptions options : Arrays.asList(
+                serializer.getDefaultOptions(),
+                serializer.getDefaultOptions().withMaskedLinks(true),
+                serializer.getDefaultOptions().withEscapeMarkdown(false),
+                serializer.getDefaultOptions().withCompactFormatting(true)
+        )) {
+            // an equal flattener that isn't the default one, which makes the serializer flatten every component
+            DiscordSerializerOptions flatteningOptions = new DiscordSerializerOptions(
+                    options.isMaskedLinks(),
+                    options.isEscapeMarkdown(),
+                    options.getFlattener().toBuilder().build(),
+                    options.isCompactFormatting()
+            );
+            for (Component component : components) {
+                Assertions.assertEquals(
+                        serializer.serialize(component, flatteningOptions),
+                        serializer.serialize(component, options),
+                        component.toString()
+                );
+            }
+        }
+    }
+
+    @Test
+    public void chunkTest() {
+        Assertions.assertEquals(Collections.singletonList("short"), serializer.serializeChunks(Component.text("short"), 2000));
+        Assertions.assertEquals(Collections.emptyList(), serializer.serializeChunks(Component.empty(), 2000));
+
+        // Moved to the next chunk as a whole
+        Assertions.assertEquals(
+                Arrays.asList("hello", "**world**"),
+                serializer.serializeChunks(
+                        Component.text()
+                                .append(Component.text("hello"))
+                                .append(Component.text("world").decorate(TextDecoration.BOLD))
+                                .build(),
+                        10
+                )
+        );
+
+        // Split on whitespace, reopening formatting
+        Assertions.assertEquals(
+                Arrays.asList("**aaaa **", "**bbbb **", "**cccc**"),
+                serializer.serializeChunks(Component.text("aaaa bbbb cccc").decorate(TextDecoration.BOLD), 10)
+        );
+
+        // Escapes are not split
+        Assertions.assertEquals(
+                Arrays.asList("\\*\\*\\*", "\\*\\*"),
+                serializer.serializeChunks(Component.text("*****"), 7)
+        );
+
+        // Masked links are split into multiple links
+        Assertions.assertEquals(
+                Arrays.asList("[Discord ](<https://discord.com>)", "[website](<https://discord.com>)"),
+                serializerWithLinks.serializeChunks(
+                        Component.text("Discord website").clickEvent(ClickEvent.openUrl("https://discord.com")),
+                        35
+                )
+        );
+
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> serializer.serializeChunks(Component.text("bold").decorate(TextDecoration.BOLD), 4)
+        );
+    }
 }
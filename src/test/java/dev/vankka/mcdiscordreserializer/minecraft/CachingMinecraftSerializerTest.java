@@ -0,0 +1,91 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.minecraft;
+
+import dev.vankka.mcdiscordreserializer.cache.CacheStats;
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CachingMinecraftSerializerTest {
+
+    @Test
+    public void cacheTest() {
+        CachingMinecraftSerializer serializer = new CachingMinecraftSerializer(10, 0, TimeUnit.SECONDS);
+
+        Component component = serializer.serialize("**gg**");
+        Assertions.assertEquals(MinecraftSerializer.INSTANCE.serialize("**gg**"), component);
+        Assertions.assertSame(component, serializer.serialize("**gg**"));
+
+        // Different options
+        MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults();
+        Assertions.assertEquals(component, serializer.serialize("**gg**", options));
+
+        CacheStats stats = serializer.getCacheStats();
+        Assertions.assertEquals(1, stats.getHitCount());
+        Assertions.assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    public void parseLimitTest() {
+        CachingMinecraftSerializer serializer = new CachingMinecraftSerializer(10, 0, TimeUnit.SECONDS);
+        MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults().withMaxInputLength(4);
+
+        // messages that fall back to plain text are not cached
+        Assertions.assertEquals(Component.text("**gg**"), serializer.serialize("**gg**", options));
+        Assertions.assertEquals(Component.text("**gg**"), serializer.serialize("**gg**", options));
+
+        CacheStats stats = serializer.getCacheStats();
+        Assertions.assertEquals(0, stats.getHitCount());
+        Assertions.assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    public void evictionTest() {
+        CachingMinecraftSerializer serializer = new CachingMinecraftSerializer(2, 0, TimeUnit.SECONDS);
+
+        serializer.serialize("gg");
+        serializer.serialize("lol");
+        serializer.serialize("gg");
+        serializer.serialize("wp"); // evicts "lol"
+        serializer.serialize("gg");
+        serializer.serialize("lol");
+
+        CacheStats stats = serializer.getCacheStats();
+        Assertions.assertEquals(2, stats.getHitCount());
+        Assertions.assertEquals(4, stats.getMissCount());
+        Assertions.assertEquals(2, stats.getEvictionCount());
+    }
+
+    @Test
+    public void expiryTest() throws InterruptedException {
+        CachingMinecraftSerializer serializer = new CachingMinecraftSerializer(10, 10, TimeUnit.MILLISECONDS);
+
+        Component component = serializer.serialize("gg");
+        Thread.sleep(50);
+        Assertions.assertNotSame(component, serializer.serialize("gg"));
+
+        CacheStats stats = serializer.getCacheStats();
+        Assertions.assertEquals(0, stats.getHitCount());
+        Assertions.assertEquals(2, stats.getMissCount());
+        Assertions.assertEquals(1, stats.getEvictionCount());
+    }
+}
@@ -18,11 +18,41 @@
 
 package dev.vankka.mcdiscordreserializer.minecraft;
 
+import dev.vankka.mcdiscordreserializer.renderer.MinecraftNodeRenderer;
+import dev.vankka.mcdiscordreserializer.renderer.implementation.DefaultMinecraftRenderer;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownParser;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownRules;
+import dev.vankka.mcdiscordreserializer.rules.StyleNode;
+import dev.vankka.simpleast.core.node.Node;
+import dev.vankka.simpleast.core.node.TextNode;
+import dev.vankka.simpleast.core.parser.ParseSpec;
+import dev.vankka.simpleast.core.parser.Parser;
+import dev.vankka.simpleast.core.parser.Rule;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 public class MinecraftSerializerTest {
 
     private final MinecraftSerializer serializer = new MinecraftSerializer();
@@ -70,4 +100,274 @@ public class MinecraftSerializerTest {
                 serializer.serialize("~~strikethrough __strikethrough underline__ **strikethrough bold**~~")
         );
     }
+
+    @Test
+    public void quoteTest() {
+        Assertions.assertEquals(
+                Component.empty()
+                        .append(Component.text("| ", NamedTextColor.DARK_GRAY, TextDecoration.BOLD))
+                        .append(
+                                Component.empty()
+                                        .append(Component.text("quote "))
+                                        .append(Component.text("bold").decorate(TextDecoration.BOLD))
+                        ),
+                serializer.serialize("> quote **bold**")
+        );
+
+        // every line of the quote has the prefix instead of the "> " it started with
+        Assertions.assertEquals("| quote bold\n| line\n| last", plainText(serializer.serialize("> quote **bold**\n> line\n> last")));
+    }
+
+    private static String plainText(Component component) {
+        StringBuilder builder = new StringBuilder(((TextComponent) component).content());
+        for (Component child : component.children()) {
+            builder.append(plainText(child));
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void quoteChildrenTest() {
+        // a renderer that doesn't render quotes from their content gets the children of the quote appended instead
+        DefaultMinecraftRenderer renderer = new DefaultMinecraftRenderer() {
+            @Override
+            public @NotNull Component appendQuote(@NotNull Component component, @NotNull Component content) {
+                return component.color(NamedTextColor.GRAY);
+            }
+        };
+        Assertions.assertFalse(renderer.isQuoteContentRendered());
+        Assertions.assertTrue(DefaultMinecraftRenderer.INSTANCE.isQuoteContentRendered());
+        MinecraftSerializerOptions<Component> options = serializer.getDefaultOptions().addRenderer(renderer);
+
+        Assertions.assertEquals(
+                Component.text("quote ", NamedTextColor.GRAY)
+                        .append(Component.text("bold").decorate(TextDecoration.BOLD)),
+                serializer.serialize("> quote **bold**", options)
+        );
+    }
+
+    @Test
+    public void spoilerTest() {
+        Component content = Component.empty()
+                .append(Component.text("spoiler "))
+                .append(Component.text("bold").decorate(TextDecoration.BOLD));
+
+        Assertions.assertEquals(
+                Component.empty()
+                        .append(
+                                Component.empty()
+                                        .append(
+                                                content.decorate(TextDecoration.OBFUSCATED)
+                                                        .color(NamedTextColor.DARK_GRAY)
+                                                        .hoverEvent(HoverEvent.showText(content))
+                                        )
+                        )
+                        .append(Component.text(" text")),
+                serializer.serialize("||spoiler **bold**|| text")
+        );
+    }
+
+    @Test
+    public void punctuationTest() {
+        String punctuation = "!?.,;:-()[]{}'\"#$%&+=/@^ ";
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < 4000; i++) {
+            builder.append(punctuation.charAt((i * 7) % punctuation.length()));
+        }
+        String message = builder.toString();
+
+        // adjacent text nodes are merged into one component
+        Assertions.assertEquals(Component.text(message), serializer.serialize(message));
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 0; i < 1000; i++) {
+                serializer.serialize(message);
+            }
+        });
+    }
+
+    @Test
+    public void manyChildrenTest() {
+        StringBuilder builder = new StringBuilder("__");
+        for (int i = 0; i < 800; i++) {
+            builder.append("**bold** ");
+        }
+        String message = builder.append("__").toString();
+
+        Component component = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> serializer.serialize(message));
+        Assertions.assertEquals(1600, component.children().size());
+        Assertions.assertEquals(Component.text("bold").decorate(TextDecoration.BOLD), component.children().get(0));
+        Assertions.assertEquals(Component.text(" "), component.children().get(1));
+    }
+
+    @Test
+    public void rendererNodeTypesTest() {
+        List<Class<?>> renderedTypes = new ArrayList<>();
+        MinecraftNodeRenderer renderer = new MinecraftNodeRenderer() {
+            @Override
+            public Component render(@NotNull Component baseComponent,
+                                    @NotNull Node<Object> node,
+                                    @NotNull MinecraftSerializerOptions<Component> serializerOptions,
+                                    @NotNull Function<Node<Object>, Component> renderWithChildren) {
+                renderedTypes.add(node.getClass());
+                return ((TextComponent) baseComponent).content(((TextNode<?>) node).getContent().toUpperCase(Locale.ROOT));
+            }
+
+            @Override
+            public Collection<Class<?>> getNodeTypes() {
+                return Collections.singletonList(TextNode.class);
+            }
+        };
+        MinecraftSerializerOptions<Component> options = serializer.getDefaultOptions().addRenderer(renderer);
+
+        Assertions.assertEquals(Collections.singletonList(renderer), options.getRenderers(TextNode.class));
+        Assertions.assertEquals(Collections.emptyList(), options.getRenderers(StyleNode.class));
+        Assertions.assertEquals(
+                Component.text("BOLD").decorate(TextDecoration.BOLD),
+                serializer.serialize("**bold**", options)
+        );
+        Assertions.assertEquals(Collections.singletonList(TextNode.class), renderedTypes);
+    }
+
+    @Test
+    public void renderTwiceTest() {
+        MinecraftSerializerOptions<Component> options = serializer.getDefaultOptions();
+        String message = "`code` ```java\nSystem.out.println();``` **bold** ||spoiler|| > quote";
+        List<Node<Object>> nodes = options.parse(message, null);
+
+        Component first = serializer.render(nodes, options);
+        Assertions.assertEquals(first, serializer.render(nodes, options));
+        Assertions.assertEquals(serializer.render(options.parse(message, null), options), first);
+        Assertions.assertEquals(serializer.serialize(message, options), first);
+
+        // adjacent text nodes are merged while rendering, like they are when serializing
+        String[] tokens = {"a", "b c", "!", ".", "\\*", "**", "__", "||", "> ", "\n", "\n> ", "`", "<@1>", "https://a.b"};
+        Random random = new Random(21);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int count = 1 + random.nextInt(12);
+            for (int j = 0; j < count; j++) {
+                builder.append(tokens[random.nextInt(tokens.length)]);
+            }
+            String randomMessage = builder.toString();
+            Assertions.assertEquals(
+                    serializer.serialize(randomMessage, options),
+                    serializer.render(options.parse(randomMessage, null), options),
+                    randomMessage
+            );
+        }
+    }
+
+    @Test
+    public void plainTest() {
+        // renders nothing itself, but makes the serializer parse and render every message
+        MinecraftNodeRenderer parsingRenderer = new MinecraftNodeRenderer() {
+            @Override
+            public Component render(@NotNull Component baseComponent,
+                                    @NotNull Node<Object> node,
+                                    @NotNull MinecraftSerializerOptions<Component> serializerOptions,
+                                    @NotNull Function<Node<Object>, Component> renderWithChildren) {
+                return null;
+            }
+        };
+        List<MinecraftSerializerOptions<Component>> optionsList = Arrays.asList(
+                serializer.getDefaultOptions(),
+                serializer.getDefaultOptions().withParser(new Parser<>()),
+                serializer.getDefaultOptions().withParser(new DiscordMarkdownParser())
+        );
+        String[] tokens = {"a", "b c", " ", "h", "ht", "htt", "tp", "http://", "https://a.", ":", "/", ".", ",", "!", "?", "@", "#", "\u00E9", "\uD83D\uDE00", "\r", "\t", "0", "*", "\n", "<@1>"};
+
+        Random random = new Random(90);
+        for (MinecraftSerializerOptions<Component> options : optionsList) {
+            Assertions.assertTrue(options.isDiscordMarkdown());
+            MinecraftSerializerOptions<Component> parsingOptions = options.addRenderer(parsingRenderer);
+
+            Assertions.assertEquals(serializer.serialize("", parsingOptions), serializer.serialize("", options));
+            for (int i = 0; i < 5000; i++) {
+                StringBuilder message = new StringBuilder();
+                int count = 1 + random.nextInt(12);
+                for (int j = 0; j < count; j++) {
+                    message.append(tokens[random.nextInt(tokens.length)]);
+                }
+                Assertions.assertEquals(
+                        serializer.serialize(message.toString(), parsingOptions),
+                        serializer.serialize(message.toString(), options),
+                        message.toString()
+                );
+            }
+        }
+
+        Assertions.assertEquals(Component.text("plain text, no markdown"), serializer.serialize("plain text, no markdown"));
+        Assertions.assertFalse(serializer.getDefaultOptions().withRules(DiscordMarkdownRules.createAllRulesForDiscord(false)).isDiscordMarkdown());
+        Assertions.assertFalse(serializer.getDefaultOptions().withRules(DiscordMarkdownRules.createSimpleMarkdownRules()).isDiscordMarkdown());
+
+        // a rule added to the list after the options were created must not apply to only some messages
+        List<Rule<Object, Node<Object>, Object>> rules = new ArrayList<>(DiscordMarkdownRules.createAllRulesForDiscord(true));
+        MinecraftSerializerOptions<Component> options = serializer.getDefaultOptions().withRules(rules);
+        rules.add(0, new Rule<Object, Node<Object>, Object>(Pattern.compile("^gg")) {
+            @Override
+            public ParseSpec<Object, Node<Object>, Object> parse(Matcher matcher, Parser<Object, Node<Object>, Object> parser, Object state) {
+                return ParseSpec.createTerminal(new TextNode<>("GOOD GAME"), state);
+            }
+        });
+        Assertions.assertTrue(options.isDiscordMarkdown());
+        Assertions.assertEquals(Component.text("gg"), serializer.serialize("gg", options));
+        Assertions.assertEquals(serializer.serialize("gg **x**"), serializer.serialize("gg **x**", options));
+    }
+
+    @Test
+    public void copiedRulesTest() {
+        List<Rule<Object, Node<Object>, Object>> rules = new ArrayList<>(DiscordMarkdownRules.createAllRulesForDiscord(true));
+        MinecraftSerializerOptions<Component> options = serializer.getDefaultOptions().withRules(rules);
+
+        // a rule that isn't thread safe, added after the options were created
+        rules.add(0, new Rule<Object, Node<Object>, Object>(Pattern.compile("^gg")) {
+            @Override
+            public ParseSpec<Object, Node<Object>, Object> parse(Matcher matcher, Parser<Object, Node<Object>, Object> parser, Object state) {
+                return ParseSpec.createTerminal(new TextNode<>("GOOD GAME"), state);
+            }
+        });
+        Assertions.assertTrue(options.isConcurrentParsing());
+        Assertions.assertEquals(rules.size() - 1, options.getRules().size());
+    }
+
+    @Test
+    public void concurrentTest() {
+        Assertions.assertTrue(serializer.getDefaultOptions().isConcurrentParsing());
+
+        String[] messages = {
+                "__underline **bold**__",
+                "~~strikethrough __strikethrough underline__ **strikethrough bold**~~",
+                "> quoted *italics* and ||a **bold** spoiler||\n> second line",
+                "`code` ```java\nSystem.out.println();``` \\*escaped\\* https://example.com <@123> <#456> <:emoji:789>",
+                "_italic_ text\n\n\nwith __several__ newlines"
+        };
+        List<Component> expected = new ArrayList<>();
+        for (String message : messages) {
+            expected.add(serializer.serialize(message));
+        }
+
+        int threads = 8;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int offset = thread;
+            tasks.add(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    int index = (i + offset) % messages.length;
+                    Assertions.assertEquals(expected.get(index), serializer.serialize(messages[index]));
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.minecraft;
+
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownParser;
+import dev.vankka.mcdiscordreserializer.rules.DiscordMarkdownRules;
+import dev.vankka.simpleast.core.parser.Parser;
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ParseLimitTest {
+
+    private final MinecraftSerializer serializer = new MinecraftSerializer();
+
+    private static String repeat(String value, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(value);
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+
+    private static List<String> pathologicalInputs(int length) {
+        return Arrays.asList(
+                repeat("*", length),
+                repeat("_", length),
+                repeat("`", length),
+                repeat("~", length),
+                repeat("|", length),
+                repeat("a", length),
+                repeat("_a", length),
+                repeat("*a", length),
+                repeat("**__", length),
+                repeat("> *a", length),
+                repeat("> ", length),
+                repeat("\\", length),
+                repeat("<@", length),
+                repeat("http://", length),
+                repeat("a:", length),
+                "**" + repeat("_*", length) + "**"
+        );
+    }
+
+    private void assertBounded(MinecraftSerializerOptions<Component> options) {
+        for (String input : pathologicalInputs(MinecraftSerializerOptions.DEFAULT_MAX_INPUT_LENGTH)) {
+            Assertions.assertTimeoutPreemptively(
+                    Duration.ofSeconds(5),
+                    () -> serializer.serialize(input, options),
+                    () -> "Input starting with " + input.substring(0, 8)
+            );
+        }
+    }
+
+    @Test
+    public void pathologicalInputTest() {
+        assertBounded(MinecraftSerializerOptions.defaults());
+    }
+
+    @Test
+    public void pathologicalInputParserTest() {
+        assertBounded(MinecraftSerializerOptions.defaults().withParser(new Parser<>()));
+    }
+
+    @Test
+    public void pathologicalInputLexerTest() {
+        assertBounded(MinecraftSerializerOptions.defaults().withParser(new DiscordMarkdownParser()));
+    }
+
+    @Test
+    public void maxInputLengthTest() {
+        MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults().withMaxInputLength(10);
+
+        Assertions.assertEquals(Component.text("**too long**"), serializer.serialize("**too long**", options));
+        Assertions.assertNotEquals(Component.text("**short**"), serializer.serialize("**short**", options));
+
+        options = options.withParser(new DiscordMarkdownParser());
+        Assertions.assertEquals(Component.text("**too long**"), serializer.serialize("**too long**", options));
+        Assertions.assertNotEquals(Component.text("**short**"), serializer.serialize("**short**", options));
+    }
+
+    @Test
+    public void maxNestingDepthTest() {
+        MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults().withMaxNestingDepth(3);
+        assertMaxNestingDepth(options);
+        // rendered while it's parsed instead of from a tree
+        assertMaxNestingDepth(options.withParser(new DiscordMarkdownParser()));
+    }
+
+    private void assertMaxNestingDepth(MinecraftSerializerOptions<Component> options) {
+        Assertions.assertEquals(Component.text("**__~~deep~~__**"), serializer.serialize("**__~~deep~~__**", options));
+        Assertions.assertEquals(Component.text("**__`deep`__**"), serializer.serialize("**__`deep`__**", options));
+        Assertions.assertNotEquals(Component.text("**__shallow__**"), serializer.serialize("**__shallow__**", options));
+        Assertions.assertNotEquals(Component.text("**__<@123>__**"), serializer.serialize("**__<@123>__**", options));
+    }
+
+    @Test
+    public void parseTimeoutTest() {
+        MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults()
+                .withParser(new Parser<>())
+                .withMaxInputLength(0)
+                .withMaxNestingDepth(0)
+                .withParseTimeout(1, TimeUnit.NANOSECONDS);
+
+        String input = repeat("_a", 100_000);
+        Assertions.assertEquals(Component.text(input), serializer.serialize(input, options));
+    }
+
+    @Test
+    public void optionsTest() {
+        MinecraftSerializerOptions<Component> options = new MinecraftSerializerOptions<>(
+                new Parser<>(), DiscordMarkdownRules.createAllRulesForDiscord(false), Collections.emptyList(), false);
+
+        Assertions.assertEquals(MinecraftSerializerOptions.DEFAULT_MAX_INPUT_LENGTH, options.getMaxInputLength());
+        Assertions.assertEquals(MinecraftSerializerOptions.DEFAULT_MAX_NESTING_DEPTH, options.getMaxNestingDepth());
+        Assertions.assertEquals(0, options.getParseTimeout(TimeUnit.NANOSECONDS));
+        Assertions.assertEquals(250, options.withParseTimeout(250, TimeUnit.MILLISECONDS).getParseTimeout(TimeUnit.MILLISECONDS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> options.withMaxInputLength(-1));
+    }
+}
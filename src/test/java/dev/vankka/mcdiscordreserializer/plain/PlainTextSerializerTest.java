@@ -0,0 +1,98 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package dev.vankka.mcdiscordreserializer.plain;
+
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class PlainTextSerializerTest {
+
+    private static final String[] TOKENS = {
+            "*", "**", "_", "__", "~~", "||", "`", "```", "\n", "\\", "\\*", "<@1>", "<#2>", "<@&3>", "<a:e:4>",
+            "https://a.b", "http://", "a", "b c", "  ", "x:y", "\u00E9", "\uD83D\uDE00", "\r", "```java\n", "<", "."
+    };
+
+    private final PlainTextSerializer serializer = PlainTextSerializer.INSTANCE;
+
+    @Test
+    public void stripTest() {
+        Assertions.assertEquals("bold underline italics strikethrough", serializer.serialize("**bold** __underline__ *italics* ~~strikethrough~~"));
+        Assertions.assertEquals("spoiler code block", serializer.serialize("||spoiler|| `code` ```java\nblock```"));
+        Assertions.assertEquals("https://example.com * _ \\", serializer.serialize("https://example.com \\* \\_ \\\\"));
+        Assertions.assertEquals("**not closed", serializer.serialize("**not closed"));
+        Assertions.assertEquals("", serializer.serialize(""));
+    }
+
+    @Test
+    public void quoteTest() {
+        Assertions.assertEquals("quote bold\nsecond line", serializer.serialize("> quote **bold**\n> second line"));
+        Assertions.assertEquals("text\nquote\ncode\n", serializer.serialize("text\n> quote\n> `code`\n"));
+    }
+
+    @Test
+    public void resolverTest() {
+        Assertions.assertEquals("<@123> <#456> <@&789> :emoji:", serializer.serialize("<@123> <#456> <@&789> <:emoji:12>"));
+
+        PlainTextSerializer resolving = new PlainTextSerializer(new PlainTextResolver() {
+            @Override
+            public void appendUserMention(@NotNull StringBuilder builder, @NotNull String id) {
+                builder.append("@user").append(id);
+            }
+
+            @Override
+            public void appendEmoteMention(@NotNull StringBuilder builder, @NotNull String name, @NotNull String id) {
+                builder.append(id);
+            }
+        });
+        Assertions.assertEquals("**@user123** <#456> 12", resolving.serialize("\\*\\*<@123>\\*\\* <#456> <a:emoji:12>"));
+    }
+
+    @Test
+    public void minecraftTest() {
+        // the same text as serializing to a component and taking the plain text of it, for messages without quotes
+        Random random = new Random(78);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder message = new StringBuilder();
+            int tokens = 1 + random.nextInt(16);
+            for (int j = 0; j < tokens; j++) {
+                message.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+
+            StringBuilder expected = new StringBuilder();
+            appendPlainText(MinecraftSerializer.INSTANCE.serialize(message.toString()), expected);
+            Assertions.assertEquals(expected.toString(), serializer.serialize(message.toString()), message.toString());
+        }
+    }
+
+    private void appendPlainText(Component component, StringBuilder builder) {
+        if (component instanceof TextComponent) {
+            builder.append(((TextComponent) component).content());
+        }
+        for (Component child : component.children()) {
+            appendPlainText(child, builder);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.rules;
+
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer;
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions;
+import dev.vankka.simpleast.core.node.Node;
+import dev.vankka.simpleast.core.node.TextNode;
+import dev.vankka.simpleast.core.parser.Parser;
+import dev.vankka.simpleast.core.parser.Rule;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Differential tests for {@link DiscordMarkdownParser} against the regex rules from {@link DiscordMarkdownRules}.
+ */
+public class DiscordMarkdownParserTest {
+
+    private static final String[] GOLDEN = {
+            "",
+            "plain text",
+            "__underline **bold**__",
+            "~~strikethrough __strikethrough underline__ **strikethrough bold**~~",
+            "***bold italics*** **not closed ***a***",
+            "_italics_ snake_case_word _a_b _\\_escaped\\__ __a___",
+            "*a* * a* *a **b** c* *a  b*",
+            "> quote **bold**\n> second line\n> > nested",
+            "text\n> quote after text\n\n\nnewlines  \nspaces",
+            "||spoiler **bold**|| ||not closed\n||",
+            "`code` ``co`de`` ```java\nSystem.out.println();\n``` ```js\n``` ```a``` ````",
+            "<@123> <@!456> <#789> <@&12> <:emoji:34> <a:animated:56> <@abc> <:a:b>",
+            "https://example.com/path?query=1 http://x.y. https://nodot http://a.b\nc",
+            "\\* \\_ \\a \\\\ \\\uD83D\uDE00",
+            "word:word url:x ab: :c",
+            "\u00E9\u0301_a_\u0301 _a_\u00E9 \uD83D\uDE00 \uD83D lone surrogate",
+            "line\r\nbreaks\r and \u2028 separators\u0085",
+            "trailing terminator\n",
+            "trailing carriage return\r"
+    };
+    private static final String[] TOKENS = {
+            "*", "**", "_", "__", "~~", "||", "`", "```", "> ", "\n", "\n> ", "\\", "\\*", "<@1>", "<#2>", "<@&3>", "<a:e:4>",
+            "https://a.b", "http://", "a", "b c", "  ", "x:y", "\u00E9", "\u0301", "\uD83D\uDE00", "\r", "\u2028", "```java\n", "<", "."
+    };
+
+    private final Parser<Object, Node<Object>, Object> regexParser = new Parser<>();
+    private final List<Rule<Object, Node<Object>, Object>> rules = DiscordMarkdownRules.createAllRulesForDiscord(true);
+    private final DiscordMarkdownParser parser = new DiscordMarkdownParser();
+
+    @Test
+    public void goldenTest() {
+        for (String message : GOLDEN) {
+            assertSameTree(message);
+        }
+    }
+
+    @Test
+    public void differentialTest() {
+        Random random = new Random(12);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder message = new StringBuilder();
+            int tokens = 1 + random.nextInt(16);
+            for (int j = 0; j < tokens; j++) {
+                message.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            assertSameTree(message.toString());
+        }
+    }
+
+    @Test
+    public void serializerTest() {
+        MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults().withParser(parser);
+        Assertions.assertTrue(options.isConcurrentParsing());
+
+        MinecraftSerializer serializer = new MinecraftSerializer(options);
+        for (String message : GOLDEN) {
+            Assertions.assertEquals(MinecraftSerializer.INSTANCE.serialize(message), serializer.serialize(message), message);
+        }
+    }
+
+    @Test
+    public void immutableTest() {
+        String message = "> quote **bold** `code` ```java\ncode``` ||spoiler|| <@123>";
+        DiscordMarkdownRules.QuoteState state = new DiscordMarkdownRules.QuoteState(false);
+        List<List<Node<Object>>> trees = Arrays.asList(
+                regexParser.parse(message, state, rules, false),
+                parser.parse(message, state, null, false)
+        );
+        Assertions.assertFalse(state.isInQuote());
+
+        for (List<Node<Object>> nodes : trees) {
+            Deque<Node<Object>> remaining = new ArrayDeque<>(nodes);
+            while (!remaining.isEmpty()) {
+                Node<Object> node = remaining.pop();
+                if (node instanceof StyleNode) {
+                    List<?> styles = ((StyleNode<?, ?>) node).getStyles();
+                    Assertions.assertThrows(UnsupportedOperationException.class, styles::clear);
+                }
+                remaining.addAll(node.getChildren());
+            }
+        }
+    }
+
+    @Test
+    public void compactTest() {
+        Random random = new Random(34);
+        for (int i = 0; i < GOLDEN.length + 5000; i++) {
+            String message;
+            if (i < GOLDEN.length) {
+                message = GOLDEN[i];
+            } else {
+                StringBuilder builder = new StringBuilder();
+                int tokens = 1 + random.nextInt(16);
+                for (int j = 0; j < tokens; j++) {
+                    builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+                }
+                message = builder.toString();
+            }
+
+            CompactTree tree = parser.parseCompact(message, null);
+            // the compact tree merges text that is next to each other in the message, so compare with all text merged
+            String expected = describe(parser.parse(message, null, null, false)).replace(")text(", "");
+            Assertions.assertEquals(expected, describe(tree.toNodes()).replace(")text(", ""), message);
+            assertLinked(tree, message);
+        }
+
+        CompactTree tree = parser.parseCompact("a **b `c`** <:d:1> ```java\ne```", null);
+        Assertions.assertEquals(8, tree.size());
+        Assertions.assertEquals(CompactTree.Type.BOLD, tree.getType(1));
+        Assertions.assertEquals("b `c`", tree.getText(1));
+        Assertions.assertEquals("c", tree.getText(3));
+        Assertions.assertEquals(1, tree.getParent(3));
+        Assertions.assertEquals(4, tree.getNextSibling(1));
+        Assertions.assertEquals("d", tree.getText(5));
+        Assertions.assertEquals("1", tree.getEmojiId(5));
+        Assertions.assertEquals("java", tree.getLanguage(7));
+        Assertions.assertNull(tree.getLanguage(3));
+    }
+
+    @Test
+    public void visitorTest() {
+        MinecraftSerializer serializer = new MinecraftSerializer(MinecraftSerializerOptions.defaults().withParser(parser));
+        Random random = new Random(56);
+        for (int i = 0; i < GOLDEN.length + 5000; i++) {
+            String message;
+            if (i < GOLDEN.length) {
+                message = GOLDEN[i];
+            } else {
+                StringBuilder builder = new StringBuilder();
+                int tokens = 1 + random.nextInt(16);
+                for (int j = 0; j < tokens; j++) {
+                    builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+                }
+                message = builder.toString();
+            }
+
+            StringBuilder visited = new StringBuilder();
+            parser.parse(message, null, new DescribingVisitor(visited));
+            StringBuilder expected = new StringBuilder();
+            CompactTree tree = parser.parseCompact(message, null);
+            for (int node = tree.size() > 0 ? 0 : -1; node != -1; node = tree.getNextSibling(node)) {
+                describe(expected, tree, node);
+            }
+            Assertions.assertEquals(expected.toString(), visited.toString(), message);
+
+            StringBuilder accepted = new StringBuilder();
+            tree.accept(new DescribingVisitor(accepted));
+            Assertions.assertEquals(visited.toString(), accepted.toString(), message);
+
+            // rendered from the visitor, instead of the tree
+            Component rendered = MinecraftSerializer.INSTANCE.serialize(message);
+            Assertions.assertEquals(rendered, serializer.serialize(message), message);
+            Assertions.assertEquals(rendered, serializer.render(tree, serializer.getDefaultOptions()), message);
+        }
+    }
+
+    private void describe(StringBuilder builder, CompactTree tree, int node) {
+        CompactTree.Type type = tree.getType(node);
+        builder.append(type).append('[').append(tree.getStart(node)).append(',').append(tree.getEnd(node)).append(']');
+        if (type == CompactTree.Type.CODE_BLOCK) {
+            builder.append(tree.getLanguage(node));
+        } else if (type == CompactTree.Type.EMOJI) {
+            builder.append(tree.getEmojiId(node));
+        }
+        int child = tree.getFirstChild(node);
+        if (child == -1) {
+            return;
+        }
+        builder.append('{');
+        for (; child != -1; child = tree.getNextSibling(child)) {
+            describe(builder, tree, child);
+        }
+        builder.append('}');
+    }
+
+    private static class DescribingVisitor implements DiscordMarkdownVisitor {
+
+        private final StringBuilder builder;
+
+        private DescribingVisitor(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        private void append(CompactTree.Type type, int start, int end) {
+            builder.append(type).append('[').append(start).append(',').append(end).append(']');
+        }
+
+        @Override
+        public void onText(@NotNull String source, int start, int end) {
+            append(CompactTree.Type.TEXT, start, end);
+        }
+
+        @Override
+        public void onStyleStart(@NotNull CompactTree.Type style, @NotNull String source, int start, int end) {
+            append(style, start, end);
+            builder.append('{');
+        }
+
+        @Override
+        public void onStyleEnd(@NotNull CompactTree.Type style) {
+            builder.append('}');
+        }
+
+        @Override
+        public void onCodeString(@NotNull String source, int start, int end) {
+            append(CompactTree.Type.CODE_STRING, start, end);
+        }
+
+        @Override
+        public void onCodeBlock(@NotNull String source, int start, int end, int languageStart, int languageEnd) {
+            append(CompactTree.Type.CODE_BLOCK, start, end);
+            builder.append(languageStart != -1 ? source.substring(languageStart, languageEnd) : null);
+        }
+
+        @Override
+        public void onLink(@NotNull String source, int start, int end) {
+            append(CompactTree.Type.LINK, start, end);
+        }
+
+        @Override
+        public void onMention(@NotNull CompactTree.Type type, @NotNull String source, int start, int end) {
+            append(type, start, end);
+        }
+
+        @Override
+        public void onEmoji(@NotNull String source, int nameStart, int nameEnd, int idStart, int idEnd) {
+            append(CompactTree.Type.EMOJI, nameStart, nameEnd);
+            builder.append(source, idStart, idEnd);
+        }
+    }
+
+    private void assertLinked(CompactTree tree, String message) {
+        // walking the children from the top level visits every node in order
+        int visited = 0;
+        Deque<Integer> siblings = new ArrayDeque<>();
+        int node = tree.size() > 0 ? 0 : -1;
+        while (node != -1 || !siblings.isEmpty()) {
+            if (node == -1) {
+                node = siblings.pop();
+                continue;
+            }
+            Assertions.assertEquals(visited++, node, message);
+            int start = tree.getStart(node);
+            int parent = tree.getParent(node);
+            Assertions.assertTrue(parent == -1 || (tree.getStart(parent) <= start && tree.getEnd(node) <= tree.getEnd(parent)), message);
+
+            int child = tree.getFirstChild(node);
+            if (child != -1) {
+                Assertions.assertEquals(node, tree.getParent(child), message);
+                siblings.push(tree.getNextSibling(node));
+                node = child;
+            } else {
+                node = tree.getNextSibling(node);
+            }
+        }
+        Assertions.assertEquals(tree.size(), visited, message);
+    }
+
+    private void assertSameTree(String message) {
+        for (int i = 0; i < 2; i++) {
+            Object state = i == 0 ? null : new DiscordMarkdownRules.QuoteState(true);
+            String expected = describe(regexParser.parse(message, state, rules, false));
+            String actual = describe(parser.parse(message, state, null, false));
+            Assertions.assertEquals(expected, actual, message);
+        }
+    }
+
+    private String describe(List<Node<Object>> nodes) {
+        StringBuilder builder = new StringBuilder();
+        for (Node<Object> node : nodes) {
+            describe(builder, node);
+        }
+        return builder.toString();
+    }
+
+    private void describe(StringBuilder builder, Node<Object> node) {
+        if (node instanceof TextNode) {
+            builder.append("text(").append(((TextNode<?>) node).getContent()).append(')');
+        } else {
+            for (Object style : ((StyleNode<?, ?>) node).getStyles()) {
+                builder.append(((StyleNode.Style) style).name());
+                if (style instanceof StyleNode.ContentStyle) {
+                    builder.append('(').append(((StyleNode.ContentStyle) style).getContent()).append(')');
+                } else if (style instanceof StyleNode.CodeBlockStyle) {
+                    builder.append('(').append(((StyleNode.CodeBlockStyle) style).getLanguage()).append(')');
+                } else if (style instanceof StyleNode.MentionStyle) {
+                    builder.append('(').append(((StyleNode.MentionStyle) style).getId()).append(')');
+                } else if (style instanceof StyleNode.EmojiStyle) {
+                    builder.append('(').append(((StyleNode.EmojiStyle) style).getName())
+                            .append(':').append(((StyleNode.EmojiStyle) style).getId()).append(')');
+                } else if (style instanceof StyleNode.ItalicStyle) {
+                    builder.append('(').append(((StyleNode.ItalicStyle) style).isItalics()).append(')');
+                }
+            }
+        }
+        if (!node.getChildren().isEmpty()) {
+            builder.append('{');
+            for (Node<Object> child : node.getChildren()) {
+                describe(builder, child);
+            }
+            builder.append('}');
+        }
+    }
+}
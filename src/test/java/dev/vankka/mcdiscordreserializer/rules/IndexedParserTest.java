@@ -0,0 +1,164 @@
+/*
+ * MCDiscordReserializer: A library for transcoding between Minecraft and Discord.
+ * Copyright (C) 2021-2025 Vankka
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package dev.vankka.mcdiscordreserializer.rules;
+
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializer;
+import dev.vankka.mcdiscordreserializer.minecraft.MinecraftSerializerOptions;
+import dev.vankka.simpleast.core.node.Node;
+import dev.vankka.simpleast.core.node.TextNode;
+import dev.vankka.simpleast.core.parser.ParseSpec;
+import dev.vankka.simpleast.core.parser.Parser;
+import dev.vankka.simpleast.core.parser.Rule;
+import net.kyori.adventure.text.Component;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for {@link IndexedParser}, which should give the same result as a regular {@link Parser}.
+ */
+public class IndexedParserTest {
+
+    private static final String[] TOKENS = {
+            "*", "**", "_", "__", "~~", "||", "`", "```", "> ", "\n", "\\", "\\*", "<@1>", "<#2>", "<:e:3>",
+            "https://a.b", "a", "b c", "  ", "x:y", "\u00E9", "```java\n", "<", "h"
+    };
+
+    @Test
+    public void differentialTest() {
+        MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults();
+        Assertions.assertTrue(options.getParser() instanceof IndexedParser);
+        Assertions.assertTrue(options.isConcurrentParsing());
+
+        MinecraftSerializer indexed = new MinecraftSerializer(options);
+        MinecraftSerializer regular = new MinecraftSerializer(options.withParser(new Parser<>()));
+
+        Random random = new Random(13);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder message = new StringBuilder();
+            int tokens = 1 + random.nextInt(16);
+            for (int j = 0; j < tokens; j++) {
+                message.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+            Assertions.assertEquals(regular.serialize(message.toString()), indexed.serialize(message.toString()), message::toString);
+        }
+    }
+
+    @Test
+    public void undeclaredRuleTest() {
+        // Rules that don't declare their first characters are tried everywhere
+        List<Rule<Object, Node<Object>, Object>> rules = new ArrayList<>();
+        rules.add(new Rule<Object, Node<Object>, Object>(Pattern.compile("^!!(.+?)!!")) {
+            @Override
+            public ParseSpec<Object, Node<Object>, Object> parse(Matcher matcher, Parser<Object, Node<Object>, Object> parser, Object state) {
+                return ParseSpec.createTerminal(new TextNode<>(matcher.group(1).toUpperCase()), state);
+            }
+        });
+        rules.addAll(DiscordMarkdownRules.createAllRulesForDiscord(true));
+
+        List<Node<Object>> nodes = new IndexedParser().parse("a !!b!! c", null, rules, false);
+        Assertions.assertEquals(3, nodes.size());
+        Assertions.assertEquals("B", ((TextNode<Object>) nodes.get(1)).getContent());
+    }
+
+    @Test
+    public void declaredRuleTest() {
+        // Rules that declare their first characters are only tried at those characters
+        AtomicInteger attempts = new AtomicInteger();
+        List<Rule<Object, Node<Object>, Object>> rules = new ArrayList<>();
+        rules.add(new ThreadSafeRule<Object, Node<Object>, Object>(Pattern.compile("^!!(.+?)!!"), "!") {
+            @Override
+            public Matcher match(CharSequence inspectionSource, String lastCapture, Object state) {
+                attempts.incrementAndGet();
+                return super.match(inspectionSource, lastCapture, state);
+            }
+
+            @Override
+            public ParseSpec<Object, Node<Object>, Object> parse(Matcher matcher, Parser<Object, Node<Object>, Object> parser, Object state) {
+                return ParseSpec.createTerminal(new TextNode<>(matcher.group(1).toUpperCase()), state);
+            }
+        });
+        rules.addAll(DiscordMarkdownRules.createAllRulesForDiscord(true));
+
+        IndexedParser parser = new IndexedParser();
+        parser.parse("plain **text** with _no_ exclamation marks", null, rules, false);
+        Assertions.assertEquals(0, attempts.get());
+
+        List<Node<Object>> nodes = parser.parse("a !!b!! c", null, rules, false);
+        Assertions.assertTrue(attempts.get() > 0);
+        Assertions.assertEquals("B", ((TextNode<Object>) nodes.get(1)).getContent());
+    }
+
+    @Test
+    public void customRegionTest() {
+        // A rule that sets its own region on what it inspects returns indices within that, not within the source
+        Pattern pattern = Pattern.compile("\\w+");
+        List<Rule<Object, Node<Object>, Object>> rules = new ArrayList<>();
+        rules.add(new Rule<Object, Node<Object>, Object>(pattern) {
+            @Override
+            public Matcher match(CharSequence inspectionSource, String lastCapture, Object state) {
+                if (inspectionSource.length() < 2 || inspectionSource.charAt(0) != '!') {
+                    return null;
+                }
+                Matcher matcher = pattern.matcher(inspectionSource).region(1, inspectionSource.length());
+                return matcher.lookingAt() ? matcher : null;
+            }
+
+            @Override
+            public ParseSpec<Object, Node<Object>, Object> parse(Matcher matcher, Parser<Object, Node<Object>, Object> parser, Object state) {
+                return ParseSpec.createTerminal(new TextNode<>(matcher.group().toUpperCase()), state);
+            }
+        });
+        rules.addAll(DiscordMarkdownRules.createAllRulesForDiscord(true));
+
+        // the match starts at the second character of the source, where the region of the rule starts as well
+        List<Node<Object>> nodes = new IndexedParser().parse("a!bc d", null, rules, false);
+        Assertions.assertEquals(new Parser<>().parse("a!bc d", null, rules, false).toString(), nodes.toString());
+        Assertions.assertEquals("BC", ((TextNode<Object>) nodes.get(1)).getContent());
+    }
+
+    @Test
+    public void regionTest() {
+        // Rules match a region of the whole source, the indices of nested content must still line up
+        for (String regex : new String[] {"^\\{(.+?)\\}", "\\{(.+?)\\}", "^\\{(.+?)\\}|^\\[(.+?)]"}) {
+            List<Rule<Object, Node<Object>, Object>> rules = new ArrayList<>();
+            rules.add(new ThreadSafeRule<Object, Node<Object>, Object>(Pattern.compile(regex), "{[") {
+                @Override
+                public ParseSpec<Object, Node<Object>, Object> parse(Matcher matcher, Parser<Object, Node<Object>, Object> parser, Object state) {
+                    int group = matcher.group(1) != null ? 1 : 2;
+                    return ParseSpec.createNonterminal(StyleNode.of(StyleNode.Styles.BOLD), state, matcher.start(group), matcher.end(group));
+                }
+            });
+            rules.addAll(DiscordMarkdownRules.createAllRulesForDiscord(true));
+
+            MinecraftSerializerOptions<Component> options = MinecraftSerializerOptions.defaults().withRules(rules);
+            MinecraftSerializer indexed = new MinecraftSerializer(options);
+            MinecraftSerializer regular = new MinecraftSerializer(options.withParser(new Parser<>()));
+            for (String message : new String[] {"a {b __c__ d} e", "x {y} z {__w__}", "{a {b} c} [d]", "**a {b}**"}) {
+                Assertions.assertEquals(regular.serialize(message), indexed.serialize(message), regex + " " + message);
+            }
+        }
+    }
+}